@@ -0,0 +1,81 @@
+package com.smokingcessation.platform.benchmarks;
+
+import com.smokingcessation.platform.repository.RevokedTokenRepository;
+import com.smokingcessation.platform.repository.UserRepository;
+import com.smokingcessation.platform.security.JwtAuthenticationFilter;
+import com.smokingcessation.platform.security.SecurityStampService;
+import com.smokingcessation.platform.security.TokenRevocationService;
+import com.smokingcessation.platform.service.JwtService;
+import com.smokingcessation.platform.service.PasswordService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Builds the auth components the same way Spring would, without an application context.
+ * Repositories are Mockito mocks; nothing touches a database.
+ */
+final class AuthFixtures {
+
+    static final String SECRET = "SmokingCessationPlatformBenchmarkSecret2025!@#$%";
+    static final String USERNAME = "bench.user";
+    static final long USER_ID = 42L;
+    static final String ROLE = "MEMBER";
+
+    private AuthFixtures() {
+    }
+
+    static SecurityStampService securityStampService() {
+        return new SecurityStampService(Mockito.mock(UserRepository.class));
+    }
+
+    static JwtService jwtService(long claimsCacheMaxSize) {
+        JwtService jwtService = new JwtService(new SimpleMeterRegistry(), securityStampService());
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", Duration.ofMinutes(15).toMillis());
+        ReflectionTestUtils.setField(jwtService, "claimsCacheMaxSize", claimsCacheMaxSize);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+
+    static PasswordService passwordService(int bcryptStrength, ThreadPoolTaskExecutor executor) {
+        return new PasswordService(executor, new SimpleMeterRegistry(), bcryptStrength, Duration.ofSeconds(30));
+    }
+
+    static ThreadPoolTaskExecutor hashingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int threads = Runtime.getRuntime().availableProcessors();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(1024);
+        executor.setThreadNamePrefix("bench-bcrypt-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * User lookup used when stateless authentication is disabled; stands in for the database
+     */
+    static UserDetailsService userDetailsService() {
+        return username -> User.withUsername(username)
+                .password("")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_" + ROLE)))
+                .build();
+    }
+
+    static JwtAuthenticationFilter jwtAuthenticationFilter(JwtService jwtService, boolean statelessAuth) {
+        TokenRevocationService revocationService = new TokenRevocationService(
+                Mockito.mock(RevokedTokenRepository.class), new SimpleMeterRegistry());
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(
+                jwtService, userDetailsService(), securityStampService(), revocationService);
+        ReflectionTestUtils.setField(filter, "statelessAuthEnabled", statelessAuth);
+        return filter;
+    }
+}
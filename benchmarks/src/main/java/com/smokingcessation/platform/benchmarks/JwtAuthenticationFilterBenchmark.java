@@ -0,0 +1,70 @@
+package com.smokingcessation.platform.benchmarks;
+
+import com.smokingcessation.platform.security.JwtAuthenticationFilter;
+import com.smokingcessation.platform.service.JwtService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole per-request authentication: header extraction, claims resolution, revocation and
+ * security-stamp checks, principal creation. With statelessAuth=false the principal comes
+ * from a mocked UserDetailsService instead of the claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean statelessAuth;
+
+    @Param({"0", "10000"})
+    public long claimsCacheMaxSize;
+
+    private JwtAuthenticationFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = AuthFixtures.jwtService(claimsCacheMaxSize);
+        filter = AuthFixtures.jwtAuthenticationFilter(jwtService, statelessAuth);
+        String token = jwtService.generateToken(AuthFixtures.USERNAME, AuthFixtures.USER_ID, AuthFixtures.ROLE);
+        authorizationHeader = jwtService.createAuthorizationHeader(token);
+    }
+
+    @Benchmark
+    public void doFilter(Blackhole blackhole) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/progress/user/42");
+        request.setContextPath("/api");
+        request.addHeader("Authorization", authorizationHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+
+        try {
+            filter.doFilter(request, response, chain);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
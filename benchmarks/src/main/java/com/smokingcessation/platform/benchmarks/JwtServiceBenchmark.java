@@ -0,0 +1,57 @@
+package com.smokingcessation.platform.benchmarks;
+
+import com.smokingcessation.platform.service.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing and parsing. "claimsCacheMaxSize = 0" measures the full signature
+ * verification on every call, the default size measures the cached path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtServiceBenchmark {
+
+    @Param({"0", "10000"})
+    public long claimsCacheMaxSize;
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = AuthFixtures.jwtService(claimsCacheMaxSize);
+        token = jwtService.generateToken(AuthFixtures.USERNAME, AuthFixtures.USER_ID, AuthFixtures.ROLE);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(AuthFixtures.USERNAME, AuthFixtures.USER_ID, AuthFixtures.ROLE);
+    }
+
+    @Benchmark
+    public Claims extractAllClaims() {
+        return jwtService.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtService.validateToken(token);
+    }
+}
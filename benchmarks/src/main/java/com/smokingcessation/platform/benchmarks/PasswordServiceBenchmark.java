@@ -0,0 +1,62 @@
+package com.smokingcessation.platform.benchmarks;
+
+import com.smokingcessation.platform.service.PasswordService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt through PasswordService, including the hand-off to the bounded hashing executor.
+ * One op is one hash, so the numbers are reported as average time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PasswordServiceBenchmark {
+
+    private static final String PASSWORD = "Benchmark@123";
+
+    @Param({"10", "12"})
+    public int bcryptStrength;
+
+    private ThreadPoolTaskExecutor executor;
+    private PasswordService passwordService;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        executor = AuthFixtures.hashingExecutor();
+        passwordService = AuthFixtures.passwordService(bcryptStrength, executor);
+        encoded = passwordService.encodePassword(PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public String encodePassword() {
+        return passwordService.encodePassword(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return passwordService.verifyPassword(PASSWORD, encoded);
+    }
+}
@@ -0,0 +1,49 @@
+-- Mỗi huy hiệu một lần cho mỗi user: unique (user_id, achievement_id) trên user_achievements.
+-- Chạy một lần trên database đã có dữ liệu, trước khi deploy bản trao huy hiệu bằng MERGE.
+-- Trước đây insert kiểu "kiểm tra rồi ghi" có thể trao trùng khi đánh giá live chạy song song với backfill.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+-- Giữ lần trao sớm nhất (id nhỏ nhất); lần nào đã chia sẻ thì giữ lại trạng thái chia sẻ
+WITH ranked AS (
+    SELECT id, user_id, achievement_id,
+           ROW_NUMBER() OVER (PARTITION BY user_id, achievement_id ORDER BY id) AS rn
+    FROM user_achievements
+),
+shared AS (
+    SELECT user_id, achievement_id, MIN(shared_at) AS shared_at
+    FROM user_achievements
+    WHERE is_shared = 1
+    GROUP BY user_id, achievement_id
+)
+UPDATE t
+SET is_shared = 1, shared_at = COALESCE(t.shared_at, s.shared_at)
+FROM user_achievements t
+JOIN ranked r ON r.id = t.id AND r.rn = 1
+JOIN shared s ON s.user_id = r.user_id AND s.achievement_id = r.achievement_id
+WHERE COALESCE(t.is_shared, 0) = 0;
+
+-- Bài chia sẻ đang trỏ tới dòng trùng thì chuyển sang dòng được giữ (khóa ngoại shared_achievement_id)
+WITH ranked AS (
+    SELECT id, user_id, achievement_id,
+           ROW_NUMBER() OVER (PARTITION BY user_id, achievement_id ORDER BY id) AS rn
+    FROM user_achievements
+)
+UPDATE p
+SET shared_achievement_id = keep.id
+FROM social_posts p
+JOIN ranked dup ON dup.id = p.shared_achievement_id AND dup.rn > 1
+JOIN ranked keep ON keep.user_id = dup.user_id AND keep.achievement_id = dup.achievement_id AND keep.rn = 1;
+
+WITH ranked AS (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id, achievement_id ORDER BY id) AS rn
+    FROM user_achievements
+)
+DELETE FROM ranked WHERE rn > 1;
+
+IF NOT EXISTS (SELECT 1 FROM sys.key_constraints WHERE name = 'uk_user_achievements_user_achievement')
+    ALTER TABLE user_achievements
+        ADD CONSTRAINT uk_user_achievements_user_achievement UNIQUE (user_id, achievement_id);
+
+COMMIT TRANSACTION;
@@ -0,0 +1,41 @@
+-- Một dòng progress_tracking cho mỗi (user_id, tracking_date).
+-- Chạy một lần trên database đã có dữ liệu, trước khi deploy bản dùng MERGE cho smoking-event.
+-- Sau khi chạy: POST /api/progress/summary/rebuild để tính lại chuỗi ngày và các tổng.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+-- Gộp các dòng trùng ngày: giữ dòng mới nhất (id lớn nhất), cộng số điếu của các dòng bị xóa vào dòng đó
+WITH ranked AS (
+    SELECT id, user_id, tracking_date, cigarettes_smoked,
+           ROW_NUMBER() OVER (PARTITION BY user_id, tracking_date ORDER BY id DESC) AS rn
+    FROM progress_tracking
+),
+extra AS (
+    SELECT user_id, tracking_date, SUM(COALESCE(cigarettes_smoked, 0)) AS cigarettes
+    FROM ranked
+    WHERE rn > 1
+    GROUP BY user_id, tracking_date
+)
+UPDATE t
+SET cigarettes_smoked = COALESCE(t.cigarettes_smoked, 0) + e.cigarettes
+FROM progress_tracking t
+JOIN ranked r ON r.id = t.id AND r.rn = 1
+JOIN extra e ON e.user_id = r.user_id AND e.tracking_date = r.tracking_date;
+
+WITH ranked AS (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id, tracking_date ORDER BY id DESC) AS rn
+    FROM progress_tracking
+)
+DELETE FROM ranked WHERE rn > 1;
+
+-- Index (user_id, tracking_date) cũ được thay bằng index của ràng buộc unique
+IF EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_progress_tracking_user_date'
+           AND object_id = OBJECT_ID('progress_tracking'))
+    DROP INDEX idx_progress_tracking_user_date ON progress_tracking;
+
+IF NOT EXISTS (SELECT 1 FROM sys.key_constraints WHERE name = 'uk_progress_tracking_user_date')
+    ALTER TABLE progress_tracking
+        ADD CONSTRAINT uk_progress_tracking_user_date UNIQUE (user_id, tracking_date);
+
+COMMIT TRANSACTION;
@@ -0,0 +1,72 @@
+-- Chuyển quit_plan, plan_milestone, user_progress và progress_tracking sang id lấy từ sequence (INCREMENT BY 50,
+-- khớp allocationSize của @SequenceGenerator) để Hibernate gom insert thành JDBC batch.
+-- Chạy một lần trên database đã có dữ liệu, TRƯỚC khi deploy: nếu để ddl-auto tự tạo, sequence sẽ bắt đầu từ 1
+-- và đụng id cũ. Bước progress_tracking ghi lại toàn bộ bảng, nên chạy ngoài giờ cao điểm.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+-- Pooled optimizer coi giá trị sequence là đầu trên của khối 50 id (lo = value - 49),
+-- nên sequence bắt đầu từ MAX(id) + 50 để id đầu tiên được cấp là MAX(id) + 1
+DECLARE @tables TABLE (table_name SYSNAME, sequence_name SYSNAME);
+INSERT INTO @tables VALUES
+    ('quit_plan', 'quit_plan_seq'),
+    ('plan_milestone', 'plan_milestone_seq'),
+    ('user_progress', 'user_progress_seq'),
+    ('progress_tracking', 'progress_tracking_seq');
+
+-- Sequence đã có (ví dụ ddl-auto tạo từ 1 vì app chạy trước script) nhưng còn thấp hơn MAX(id) thì RESTART
+DECLARE @table SYSNAME, @sequence SYSNAME, @start BIGINT, @current BIGINT, @sql NVARCHAR(MAX);
+DECLARE seqs CURSOR LOCAL FAST_FORWARD FOR SELECT table_name, sequence_name FROM @tables;
+OPEN seqs;
+FETCH NEXT FROM seqs INTO @table, @sequence;
+WHILE @@FETCH_STATUS = 0
+BEGIN
+    SET @sql = N'SELECT @start = COALESCE(MAX(id), 0) + 50 FROM ' + QUOTENAME(@table);
+    EXEC sp_executesql @sql, N'@start BIGINT OUTPUT', @start = @start OUTPUT;
+    IF OBJECT_ID(@sequence, 'SO') IS NULL
+    BEGIN
+        SET @sql = N'CREATE SEQUENCE ' + QUOTENAME(@sequence) + N' AS BIGINT START WITH '
+                 + CAST(@start AS NVARCHAR(20)) + N' INCREMENT BY 50';
+        EXEC sp_executesql @sql;
+    END
+    ELSE
+    BEGIN
+        SET @current = (SELECT CAST(current_value AS BIGINT) FROM sys.sequences WHERE name = @sequence);
+        IF @current < @start - 50
+        BEGIN
+            SET @sql = N'ALTER SEQUENCE ' + QUOTENAME(@sequence) + N' RESTART WITH ' + CAST(@start AS NVARCHAR(20));
+            EXEC sp_executesql @sql;
+        END
+    END
+    FETCH NEXT FROM seqs INTO @table, @sequence;
+END
+CLOSE seqs;
+DEALLOCATE seqs;
+
+-- progress_tracking.id là IDENTITY; SQL Server không bỏ được thuộc tính IDENTITY của cột,
+-- nên chép id sang cột mới, đổi tên, rồi gắn lại khóa chính và DEFAULT lấy từ sequence
+-- (các insert JDBC / MERGE không truyền id dựa vào DEFAULT này)
+IF COLUMNPROPERTY(OBJECT_ID('progress_tracking'), 'id', 'IsIdentity') = 1
+BEGIN
+    ALTER TABLE progress_tracking ADD id_seq BIGINT NULL;
+    EXEC sp_executesql N'UPDATE progress_tracking SET id_seq = id';
+    EXEC sp_executesql N'ALTER TABLE progress_tracking ALTER COLUMN id_seq BIGINT NOT NULL';
+
+    DECLARE @pk SYSNAME = (SELECT name FROM sys.key_constraints
+                           WHERE parent_object_id = OBJECT_ID('progress_tracking') AND type = 'PK');
+    IF @pk IS NOT NULL
+    BEGIN
+        SET @sql = N'ALTER TABLE progress_tracking DROP CONSTRAINT ' + QUOTENAME(@pk);
+        EXEC sp_executesql @sql;
+    END
+
+    ALTER TABLE progress_tracking DROP COLUMN id;
+    EXEC sp_rename 'progress_tracking.id_seq', 'id', 'COLUMN';
+
+    EXEC sp_executesql N'ALTER TABLE progress_tracking ADD CONSTRAINT pk_progress_tracking PRIMARY KEY (id)';
+    EXEC sp_executesql N'ALTER TABLE progress_tracking ADD CONSTRAINT df_progress_tracking_id
+        DEFAULT (NEXT VALUE FOR progress_tracking_seq) FOR id';
+END
+
+COMMIT TRANSACTION;
@@ -2,8 +2,10 @@ package com.smokingcessation.platform;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Se1834Swp391Gr04SmokingCessationSupportPlatformApplication {
 
 	public static void main(String[] args) {
@@ -1,5 +1,6 @@
 package com.smokingcessation.platform.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -20,4 +21,63 @@ public class AsyncConfig {
         exec.initialize();
         return exec;
     }
+
+    // BCrypt chạy trên pool riêng, giới hạn theo số core để không chiếm hết thread của Tomcat.
+    // Queue đầy -> TaskRejectedException (AbortPolicy), PasswordService trả 503 ngay.
+    @Bean("passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${security.password.hashing-threads:0}") int threads,
+            @Value("${security.password.hashing-queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
+        exec.setCorePoolSize(poolSize);
+        exec.setMaxPoolSize(poolSize);
+        exec.setQueueCapacity(queueCapacity);
+        exec.setThreadNamePrefix("bcrypt-");
+        exec.initialize();
+        return exec;
+    }
+
+    // Chấm huy hiệu chạy nền (AchievementEvaluationQueue). Queue đầy -> user được giữ lại cho lượt sau.
+    @Bean("achievementExecutor")
+    public ThreadPoolTaskExecutor achievementExecutor(
+            @Value("${achievements.evaluation.threads:2}") int threads,
+            @Value("${achievements.evaluation.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
+        exec.setCorePoolSize(threads);
+        exec.setMaxPoolSize(threads);
+        exec.setQueueCapacity(queueCapacity);
+        exec.setThreadNamePrefix("achievement-");
+        exec.initialize();
+        return exec;
+    }
+
+    // Backfill huy hiệu: một thread điều phối + "parallelism" thread xử lý các chunk của mỗi trang
+    @Bean("achievementBackfillExecutor")
+    public ThreadPoolTaskExecutor achievementBackfillExecutor(
+            @Value("${achievements.backfill.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
+        exec.setCorePoolSize(parallelism + 1);
+        exec.setMaxPoolSize(parallelism + 1);
+        exec.setQueueCapacity(parallelism * 2);
+        exec.setThreadNamePrefix("achievement-backfill-");
+        exec.initialize();
+        return exec;
+    }
+
+    // Mô phỏng kế hoạch (CPU thuần): mỗi kịch bản một task, giới hạn theo số core.
+    // Queue đầy -> TaskRejectedException, QuitPlanSimulationService trả 503.
+    @Bean("planSimulationExecutor")
+    public ThreadPoolTaskExecutor planSimulationExecutor(
+            @Value("${quit-plan.simulation.threads:0}") int threads,
+            @Value("${quit-plan.simulation.queue-capacity:256}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
+        exec.setCorePoolSize(poolSize);
+        exec.setMaxPoolSize(poolSize);
+        exec.setQueueCapacity(queueCapacity);
+        exec.setThreadNamePrefix("plan-simulation-");
+        exec.initialize();
+        return exec;
+    }
 }
@@ -0,0 +1,75 @@
+package com.smokingcessation.platform.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fails startup when db/manual/sqlserver/024_pooled_sequence_ids.sql was not run on a database
+ * that already had data. ddl-auto then creates the id sequences starting at 1, and the ids they
+ * hand out collide with existing rows.
+ * <p>
+ * Runs after the EntityManagerFactory, i.e. after ddl-auto, and before the web server starts.
+ * Only SQL Server is checked.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class IdSequenceCheck {
+
+    // table -> sequence, same pairs as 024_pooled_sequence_ids.sql
+    private static final Map<String, String> ID_SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        ID_SEQUENCES.put("quit_plan", "quit_plan_seq");
+        ID_SEQUENCES.put("plan_milestone", "plan_milestone_seq");
+        ID_SEQUENCES.put("user_progress", "user_progress_seq");
+        ID_SEQUENCES.put("progress_tracking", "progress_tracking_seq");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void verify() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (product == null || !product.startsWith("Microsoft SQL Server")) {
+            log.debug("Skipping id sequence check on {}", product);
+            return;
+        }
+
+        List<String> problems = new ArrayList<>();
+        ID_SEQUENCES.forEach((table, sequence) -> {
+            Integer identity = jdbcTemplate.queryForObject(
+                    "SELECT COLUMNPROPERTY(OBJECT_ID(?), 'id', 'IsIdentity')", Integer.class, table);
+            if (identity != null && identity == 1) {
+                problems.add(table + ".id is still an IDENTITY column");
+            }
+            List<Long> current = jdbcTemplate.queryForList(
+                    "SELECT CAST(current_value AS BIGINT) FROM sys.sequences WHERE name = ?", Long.class, sequence);
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            if (current.isEmpty()) {
+                problems.add("sequence " + sequence + " does not exist");
+            } else if (maxId != null && current.get(0) < maxId) {
+                // Mỗi id đã cấp đều <= current_value; sequence thấp hơn MAX(id) nghĩa là sẽ cấp lại id cũ
+                problems.add("sequence " + sequence + " is at " + current.get(0) + " but MAX(" + table + ".id) is " + maxId);
+            }
+        });
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Id sequences are behind existing data, run "
+                    + "db/manual/sqlserver/024_pooled_sequence_ids.sql before starting: " + String.join("; ", problems));
+        }
+    }
+}
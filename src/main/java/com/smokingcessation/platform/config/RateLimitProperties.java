@@ -0,0 +1,32 @@
+package com.smokingcessation.platform.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+@Getter
+@Setter
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private int maxBuckets = 100_000; // giới hạn bộ nhớ: số bucket (client x nhóm endpoint) tối đa
+    private Duration idleTimeout = Duration.ofMinutes(10); // bucket không dùng quá lâu sẽ bị xóa
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Group {
+        private List<String> paths = new ArrayList<>(); // Ant pattern, không gồm context-path
+        private int capacity = 10; // số request tối đa liên tiếp
+        private int refillTokens = 10;
+        private Duration refillPeriod = Duration.ofMinutes(1);
+    }
+}
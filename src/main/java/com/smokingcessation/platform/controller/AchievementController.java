@@ -1,7 +1,9 @@
 package com.smokingcessation.platform.controller;
 
 import com.smokingcessation.platform.entity.Achievement;
+import com.smokingcessation.platform.entity.AchievementBackfillJob;
 import com.smokingcessation.platform.entity.UserAchievement;
+import com.smokingcessation.platform.service.AchievementBackfillService;
 import com.smokingcessation.platform.service.AchievementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,6 +13,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,6 +28,7 @@ import java.util.List;
 public class AchievementController {
 
     private final AchievementService achievementService;
+    private final AchievementBackfillService achievementBackfillService;
 
     // Lấy tất cả huy hiệu có trong hệ thống
     @Operation(summary = "Get all achievements", description = "Retrieve all available achievements in the system")
@@ -110,6 +114,47 @@ public class AchievementController {
         }
     }
 
+    // Admin: Trao huy hiệu cho các user đã đủ điều kiện (một huy hiệu hoặc toàn bộ danh mục)
+    @Operation(summary = "Start achievement backfill",
+               description = "Award an achievement (or every achievement when achievementId is omitted) " +
+                             "to existing users who already qualify. Runs in the background")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Backfill job started"),
+        @ApiResponse(responseCode = "400", description = "Achievement not found or not automatically evaluable"),
+        @ApiResponse(responseCode = "409", description = "Another backfill job is running")
+    })
+    @PostMapping("/backfill")
+    public ResponseEntity<AchievementBackfillJob> startBackfill(
+            @Parameter(description = "Achievement ID") @RequestParam(required = false) Long achievementId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(achievementBackfillService.start(achievementId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get achievement backfill job", description = "Status and checkpoint of a backfill job")
+    @GetMapping("/backfill/{jobId}")
+    public ResponseEntity<AchievementBackfillJob> getBackfillJob(@PathVariable Long jobId) {
+        return achievementBackfillService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Resume achievement backfill job", description = "Continue a failed job from its checkpoint")
+    @PostMapping("/backfill/{jobId}/resume")
+    public ResponseEntity<AchievementBackfillJob> resumeBackfill(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(achievementBackfillService.resume(jobId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/create-user-achievement/{userId}/{achievementId}")
     public ResponseEntity<Void> createUserAchievement(@PathVariable Long userId, @PathVariable Long achievementId) {
         try {
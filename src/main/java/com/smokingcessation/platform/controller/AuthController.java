@@ -2,12 +2,16 @@ package com.smokingcessation.platform.controller;
 
 import com.smokingcessation.platform.dto.request.ChangePasswordRequest;
 import com.smokingcessation.platform.dto.request.LoginRequest;
+import com.smokingcessation.platform.dto.request.RefreshTokenRequest;
 import com.smokingcessation.platform.dto.request.RegisterRequest;
 import com.smokingcessation.platform.dto.response.ApiResponse;
 import com.smokingcessation.platform.dto.response.AuthResponse;
 import com.smokingcessation.platform.dto.response.UserResponse;
+import com.smokingcessation.platform.security.ClientIpResolver;
 import com.smokingcessation.platform.service.AuthService;
 import com.smokingcessation.platform.service.JwtService;
+import com.smokingcessation.platform.service.PasswordService;
+import com.smokingcessation.platform.service.RefreshTokenService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -17,6 +21,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -30,11 +35,13 @@ public class AuthController {
 
     private final AuthService authService;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
 
     @Autowired
-    public AuthController(AuthService authService, JwtService jwtService) {
+    public AuthController(AuthService authService, JwtService jwtService, RefreshTokenService refreshTokenService) {
         this.authService = authService;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     // ========== Authentication Endpoints ==========
@@ -64,7 +71,8 @@ public class AuthController {
     })
     public ResponseEntity<ApiResponse<AuthResponse>> login(
             @Valid @RequestBody LoginRequest loginRequest,
-            BindingResult bindingResult) {
+            BindingResult bindingResult,
+            HttpServletRequest httpRequest) {
 
         // Validate request
         if (bindingResult.hasErrors()) {
@@ -77,7 +85,8 @@ public class AuthController {
             // Authenticate user
             AuthService.AuthenticationResult result = authService.authenticate(
                     loginRequest.getUsernameOrEmail(),
-                    loginRequest.getPassword()
+                    loginRequest.getPassword(),
+                    ClientIpResolver.resolve(httpRequest)
             );
 
             if (result.isSuccess()) {
@@ -86,6 +95,8 @@ public class AuthController {
                 AuthResponse authResponse = AuthResponse.success(
                         result.getToken(),
                         jwtService.getExpirationTimeInSeconds(),
+                        result.getRefreshToken(),
+                        refreshTokenService.getExpirationTimeInSeconds(),
                         userResponse
                 );
 
@@ -99,6 +110,8 @@ public class AuthController {
                         .body(ApiResponse.error(result.getMessage()));
             }
 
+        } catch (PasswordService.HashingUnavailableException e) {
+            return hashingUnavailable(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Authentication failed: " + e.getMessage()));
@@ -157,6 +170,8 @@ public class AuthController {
                 AuthResponse authResponse = AuthResponse.success(
                         result.getToken(),
                         jwtService.getExpirationTimeInSeconds(),
+                        result.getRefreshToken(),
+                        refreshTokenService.getExpirationTimeInSeconds(),
                         userResponse
                 );
 
@@ -167,6 +182,8 @@ public class AuthController {
                         .body(ApiResponse.error(result.getMessage()));
             }
 
+        } catch (PasswordService.HashingUnavailableException e) {
+            return hashingUnavailable(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Registration failed: " + e.getMessage()));
@@ -179,29 +196,30 @@ public class AuthController {
     @PostMapping("/refresh")
     @Operation(
             summary = "Refresh JWT token",
-            description = "Refresh an existing JWT token"
+            description = "Exchange a refresh token for a new access token; the refresh token is rotated"
     )
     public ResponseEntity<ApiResponse<AuthResponse>> refreshToken(
-            HttpServletRequest request) {
-
-        try {
-            // Extract token from header
-            String authHeader = request.getHeader("Authorization");
-            String token = jwtService.extractTokenFromHeader(authHeader);
+            @Valid @RequestBody RefreshTokenRequest refreshTokenRequest,
+            BindingResult bindingResult) {
 
-            if (token == null) {
-                return ResponseEntity.badRequest()
-                        .body(ApiResponse.error("Authorization header is missing or invalid"));
-            }
+        // Validate request
+        if (bindingResult.hasErrors()) {
+            String errorMessage = bindingResult.getFieldErrors().get(0).getDefaultMessage();
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Validation error: " + errorMessage));
+        }
 
-            // Refresh token
-            AuthService.AuthenticationResult result = authService.refreshToken(token);
+        try {
+            // Rotate refresh token
+            AuthService.AuthenticationResult result = authService.refreshToken(refreshTokenRequest.getRefreshToken());
 
             if (result.isSuccess()) {
                 UserResponse userResponse = UserResponse.from(result.getUser());
                 AuthResponse authResponse = AuthResponse.success(
                         result.getToken(),
                         jwtService.getExpirationTimeInSeconds(),
+                        result.getRefreshToken(),
+                        refreshTokenService.getExpirationTimeInSeconds(),
                         userResponse
                 );
 
@@ -223,12 +241,24 @@ public class AuthController {
     @PostMapping("/logout")
     @Operation(
             summary = "User logout",
-            description = "Logout user (client-side token removal)"
+            description = "Logout user and revoke the current token until it expires"
     )
-    public ResponseEntity<ApiResponse<String>> logout() {
-        // Note: JWT tokens are stateless, so logout is typically handled client-side
-        // by removing the token from storage. This endpoint serves as a confirmation.
-        return ResponseEntity.ok(ApiResponse.success("Logout successful. Please remove the token from client storage."));
+    public ResponseEntity<ApiResponse<String>> logout(
+            @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest,
+            HttpServletRequest request) {
+        String token = jwtService.extractTokenFromHeader(request.getHeader("Authorization"));
+        if (token == null) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("No token provided"));
+        }
+
+        String refreshToken = refreshTokenRequest != null ? refreshTokenRequest.getRefreshToken() : null;
+        AuthService.AuthenticationResult result = authService.logout(token, refreshToken);
+        if (!result.isSuccess()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error(result.getMessage()));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Logout successful"));
     }
 
     // ========== Password Management ==========
@@ -285,12 +315,23 @@ public class AuthController {
                         .body(ApiResponse.error(result.getMessage()));
             }
 
+        } catch (PasswordService.HashingUnavailableException e) {
+            return hashingUnavailable(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Password change failed: " + e.getMessage()));
         }
     }
 
+    /**
+     * 503 with Retry-After when the password hashing executor is saturated
+     */
+    private <T> ResponseEntity<ApiResponse<T>> hashingUnavailable(PasswordService.HashingUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
+
     // ========== Validation Endpoints ==========
 
     /**
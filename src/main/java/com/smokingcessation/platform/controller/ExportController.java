@@ -0,0 +1,100 @@
+package com.smokingcessation.platform.controller;
+
+import com.smokingcessation.platform.service.ProgressExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+@Tag(name = "Data Export", description = "Streaming CSV / NDJSON exports of a user's full history")
+public class ExportController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ProgressExportService progressExportService;
+
+    @Operation(summary = "Export daily progress", description = "All progress_tracking rows of the user, oldest first")
+    @GetMapping("/{userId}/progress")
+    public ResponseEntity<StreamingResponseBody> exportProgress(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "CSV or NDJSON") @RequestParam(defaultValue = "CSV") ProgressExportService.Format format,
+            HttpServletRequest request) {
+        return stream(request, "progress-" + userId, format,
+            out -> progressExportService.exportProgress(userId, format, out));
+    }
+
+    @Operation(summary = "Export quit plan progress", description = "Daily logs of every quit plan of the user")
+    @GetMapping("/{userId}/plan-progress")
+    public ResponseEntity<StreamingResponseBody> exportPlanProgress(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "CSV or NDJSON") @RequestParam(defaultValue = "CSV") ProgressExportService.Format format,
+            HttpServletRequest request) {
+        return stream(request, "plan-progress-" + userId, format,
+            out -> progressExportService.exportPlanProgress(userId, format, out));
+    }
+
+    @Operation(summary = "Export smoking status history", description = "Every smoking status the user has recorded")
+    @GetMapping("/{userId}/smoking-status")
+    public ResponseEntity<StreamingResponseBody> exportSmokingStatus(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "CSV or NDJSON") @RequestParam(defaultValue = "CSV") ProgressExportService.Format format,
+            HttpServletRequest request) {
+        return stream(request, "smoking-status-" + userId, format,
+            out -> progressExportService.exportSmokingStatus(userId, format, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, String name,
+                                                         ProgressExportService.Format format,
+                                                         StreamingResponseBody body) {
+        // Mỗi export giữ một connection suốt quá trình tải: hết slot thì trả 503 thay vì chiếm pool
+        Optional<ProgressExportService.ExportSlot> slot = progressExportService.tryAcquireSlot();
+        if (slot.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .build();
+        }
+        ProgressExportService.ExportSlot exportSlot = slot.get();
+
+        // Body có thể không bao giờ chạy (client ngắt trước khi dispatch, async timeout, executor từ chối):
+        // trả slot khi request async kết thúc, dù kết thúc thế nào. close() chỉ trả slot một lần.
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportSlotRelease.class.getName(),
+            new ExportSlotRelease(exportSlot));
+
+        boolean csv = format == ProgressExportService.Format.CSV;
+        return ResponseEntity.ok()
+            .contentType(csv ? TEXT_CSV : APPLICATION_NDJSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + (csv ? ".csv" : ".ndjson") + "\"")
+            .body(out -> {
+                try (ProgressExportService.ExportSlot ignored = exportSlot) {
+                    body.writeTo(out);
+                }
+            });
+    }
+
+    private record ExportSlotRelease(ProgressExportService.ExportSlot slot) implements CallableProcessingInterceptor {
+        @Override
+        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+            slot.close();
+        }
+    }
+}
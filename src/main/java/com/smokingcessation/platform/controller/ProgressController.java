@@ -1,9 +1,11 @@
 package com.smokingcessation.platform.controller;
 
+import com.smokingcessation.platform.dto.ProgressHistoryPage;
 import com.smokingcessation.platform.entity.ProgressTracking;
 import com.smokingcessation.platform.entity.User;
 import com.smokingcessation.platform.service.ProgressTrackingService;
-import com.smokingcessation.platform.service.AchievementService;
+import com.smokingcessation.platform.service.ProgressRollupService;
+import com.smokingcessation.platform.service.ProgressSummaryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -26,7 +28,8 @@ import java.util.List;
 public class ProgressController {
 
     private final ProgressTrackingService progressTrackingService;
-    private final AchievementService achievementService;
+    private final ProgressSummaryService progressSummaryService;
+    private final ProgressRollupService progressRollupService;
 
     @Operation(summary = "Record daily progress",
                description = "Record comprehensive daily progress including mood, health status, exercise and notes")
@@ -39,30 +42,41 @@ public class ProgressController {
             @Parameter(description = "User ID") @PathVariable Long userId,
             @RequestBody DailyProgressRequest request) {
         try {
-            ProgressTracking progress = new ProgressTracking();
-            User user = new User();
-            user.setId(userId);
-            progress.setUser(user);
-            progress.setTrackingDate(request.getTrackingDate());
-            progress.setCigarettesSmoked(request.getCigarettesSmoked());
-            progress.setMoodScore(request.getMoodScore());
-            progress.setCravingIntensity(request.getCravingIntensity());
-            progress.setExerciseMinutes(request.getExerciseMinutes());
-            progress.setSleepHours(request.getSleepHours());
-            progress.setHealthStatus(request.getHealthStatus());
-            progress.setNotes(request.getNotes());
+            ProgressTracking progress = toProgress(userId, request);
 
             ProgressTracking saved = progressTrackingService.recordDailyProgress(userId, progress);
 
-            // Kiểm tra và trao huy hiệu sau khi ghi nhận tiến trình
-            achievementService.checkAndAwardAchievements(userId);
-
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @Operation(summary = "Sync daily progress in batch",
+               description = "Record many days at once (offline clients). Days are processed in date order, " +
+                             "existing days are overwritten and achievements are evaluated once in the background")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Per-day results, in request order"),
+        @ApiResponse(responseCode = "400", description = "Too many entries or invalid data")
+    })
+    @PostMapping("/daily/{userId}/batch")
+    public ResponseEntity<List<ProgressTrackingService.BatchItemResult>> recordDailyProgressBatch(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @RequestBody List<DailyProgressRequest> requests) {
+        try {
+            List<ProgressTracking> entries = requests.stream()
+                .map(request -> toProgress(userId, request))
+                .toList();
+
+            List<ProgressTrackingService.BatchItemResult> results =
+                progressTrackingService.recordDailyProgressBatch(userId, entries);
+
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Record smoking event",
                description = "Record a smoking event (number of cigarettes smoked)")
     @PostMapping("/smoking-event/{userId}")
@@ -72,9 +86,6 @@ public class ProgressController {
         try {
             ProgressTracking updated = progressTrackingService.recordSmokingEvent(userId, request.getCigarettesSmoked());
 
-            // Kiểm tra huy hiệu sau khi ghi nhận
-            achievementService.checkAndAwardAchievements(userId);
-
             return ResponseEntity.ok(updated);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -90,6 +101,21 @@ public class ProgressController {
         return ResponseEntity.ok(progress);
     }
 
+    @Operation(summary = "Get user progress history page",
+               description = "Cursor-paginated history, newest first, without notes and user data. " +
+                             "Pass nextCursor from the previous page to continue")
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<ProgressHistoryPage> getUserProgressPage(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(progressTrackingService.getUserProgressPage(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Get today's progress",
                description = "Get progress tracking data for today")
     @GetMapping("/today/{userId}")
@@ -111,6 +137,24 @@ public class ProgressController {
         return ResponseEntity.ok(progress);
     }
 
+    @Operation(summary = "Get progress rollup for charts",
+               description = "Sums and averages of cigarettes, money saved, mood, craving, sleep and exercise " +
+                             "per day, ISO week or month. Defaults to the last 12 months (90 days for DAY)")
+    @GetMapping("/rollup/{userId}")
+    public ResponseEntity<List<ProgressRollupService.RollupBucket>> getProgressRollup(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "DAY, WEEK or MONTH") @RequestParam(defaultValue = "WEEK") ProgressRollupService.Granularity granularity,
+            @Parameter(description = "Start date") @RequestParam(required = false) LocalDate startDate,
+            @Parameter(description = "End date") @RequestParam(required = false) LocalDate endDate) {
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        LocalDate from = startDate != null ? startDate
+            : granularity == ProgressRollupService.Granularity.DAY ? to.minusDays(89) : to.minusMonths(12).plusDays(1);
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(progressRollupService.rollup(userId, granularity, from, to));
+    }
+
     @Operation(summary = "Get user statistics",
                description = "Get comprehensive statistics including streak, money saved, total days tracked")
     @GetMapping("/stats/{userId}")
@@ -120,6 +164,37 @@ public class ProgressController {
         return ResponseEntity.ok(stats);
     }
 
+    @Operation(summary = "Rebuild user statistics",
+               description = "Recompute streaks and totals of a user from the full progress history")
+    @PostMapping("/stats/{userId}/rebuild")
+    public ResponseEntity<ProgressTrackingService.ProgressStats> rebuildUserStats(
+            @Parameter(description = "User ID") @PathVariable Long userId) {
+        return ResponseEntity.ok(progressTrackingService.rebuildUserStats(userId));
+    }
+
+    @Operation(summary = "[ADMIN] Rebuild all progress summaries",
+               description = "Recompute the progress summary of every user that has progress data")
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<Integer> rebuildAllSummaries() {
+        return ResponseEntity.ok(progressSummaryService.rebuildAll());
+    }
+
+    private ProgressTracking toProgress(Long userId, DailyProgressRequest request) {
+        ProgressTracking progress = new ProgressTracking();
+        User user = new User();
+        user.setId(userId);
+        progress.setUser(user);
+        progress.setTrackingDate(request.getTrackingDate());
+        progress.setCigarettesSmoked(request.getCigarettesSmoked());
+        progress.setMoodScore(request.getMoodScore());
+        progress.setCravingIntensity(request.getCravingIntensity());
+        progress.setExerciseMinutes(request.getExerciseMinutes());
+        progress.setSleepHours(request.getSleepHours());
+        progress.setHealthStatus(request.getHealthStatus());
+        progress.setNotes(request.getNotes());
+        return progress;
+    }
+
     // DTOs
     public static class DailyProgressRequest {
         private LocalDate trackingDate;
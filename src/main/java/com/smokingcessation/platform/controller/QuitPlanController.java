@@ -7,6 +7,7 @@ import com.smokingcessation.platform.dto.ProgressResponse;
 import com.smokingcessation.platform.entity.QuitPlan;
 import com.smokingcessation.platform.entity.User;
 import com.smokingcessation.platform.service.QuitPlanService;
+import com.smokingcessation.platform.service.QuitPlanSimulationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,7 +15,9 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -31,6 +34,7 @@ import java.util.List;
 public class QuitPlanController {
 
     private final QuitPlanService quitPlanService;
+    private final QuitPlanSimulationService quitPlanSimulationService;
 
     // Tạo kế hoạch cai thuốc thủ công
     @PostMapping
@@ -39,6 +43,23 @@ public class QuitPlanController {
         return ResponseEntity.status(HttpStatus.OK).body(resp);
     }
 
+    // So sánh nhiều kế hoạch giả định (số tháng, số điếu/ngày) mà không lưu gì vào database
+    @Operation(summary = "Simulate quit plans",
+               description = "Compute milestones, daily targets, cigarettes avoided and money saved for each scenario without creating a plan")
+    @PostMapping("/simulate")
+    public ResponseEntity<List<QuitPlanSimulationService.SimulationResult>> simulatePlans(
+            @RequestBody SimulateRequest req) {
+        try {
+            return ResponseEntity.ok(quitPlanSimulationService.simulate(req.getScenarios()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (QuitPlanSimulationService.SimulationUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+
     @GetMapping("/{planId}")
     public ResponseEntity<PlanResponse> getPlan(@PathVariable Long planId) {
         PlanResponse resp = quitPlanService.getPlanById(planId);
@@ -70,8 +91,20 @@ public class QuitPlanController {
 
     @GetMapping("/get-by-user/{userId}")
     public ResponseEntity<List<PlanResponse>> getPlansByUser(
-            @PathVariable Long userId) {
-        List<PlanResponse> plans = quitPlanService.getByUser(userId);
-        return ResponseEntity.ok(plans);
+            @PathVariable Long userId,
+            @Parameter(description = "Page number (0-based), omit for all plans") @RequestParam(required = false) Integer page,
+            @Parameter(description = "Page size, max 100") @RequestParam(defaultValue = "20") int size) {
+        if (page == null) {
+            return ResponseEntity.ok(quitPlanService.getByUser(userId));
+        }
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(quitPlanService.getByUser(userId, page, Math.min(size, 100)));
+    }
+
+    @Data
+    public static class SimulateRequest {
+        private List<QuitPlanSimulationService.Scenario> scenarios;
     }
 }
@@ -5,6 +5,9 @@ import com.smokingcessation.platform.dto.SavingsDTO;
 import com.smokingcessation.platform.entity.User;
 import com.smokingcessation.platform.entity.Role;
 import com.smokingcessation.platform.entity.UserProgress;
+import com.smokingcessation.platform.security.ClientIpResolver;
+import com.smokingcessation.platform.security.LoginAttemptService;
+import com.smokingcessation.platform.service.PasswordService;
 import com.smokingcessation.platform.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,7 +16,10 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -37,10 +43,17 @@ public class UserController {
     })
 
     @PostMapping("/login")
-    public ResponseEntity<User> loginUser(@RequestBody LoginRequestDTO user) {
+    public ResponseEntity<User> loginUser(@RequestBody LoginRequestDTO user, HttpServletRequest httpRequest) {
         try {
-            User loggedInUser = userService.loginUser(user.getUsername(), user.getPassword());
+            User loggedInUser = userService.loginUser(user.getUsername(), user.getPassword(),
+                ClientIpResolver.resolve(httpRequest));
             return ResponseEntity.ok(loggedInUser);
+        } catch (LoginAttemptService.LoginBlockedException e) {
+            return ResponseEntity.status(HttpStatus.LOCKED).build();
+        } catch (PasswordService.HashingUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -64,6 +77,10 @@ public class UserController {
 
             User savedUser = userService.registerUser(user, roles);
             return ResponseEntity.ok(savedUser);
+        } catch (PasswordService.HashingUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -0,0 +1,26 @@
+package com.smokingcessation.platform.dto;
+
+import com.smokingcessation.platform.entity.ProgressTracking;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Lean row of the progress history: no user graph and no notes
+ */
+@Data
+@AllArgsConstructor
+public class ProgressHistoryItem {
+    private Long id;
+    private LocalDate trackingDate;
+    private Integer cigarettesSmoked;
+    private BigDecimal moneySaved;
+    private Integer currentStreak;
+    private ProgressTracking.HealthStatus healthStatus;
+    private Integer moodScore;
+    private Integer cravingIntensity;
+    private Integer exerciseMinutes;
+    private Double sleepHours;
+}
@@ -0,0 +1,14 @@
+package com.smokingcessation.platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ProgressHistoryPage {
+    private List<ProgressHistoryItem> items;
+    private String nextCursor; // null khi đã hết dữ liệu
+    private boolean hasMore;
+}
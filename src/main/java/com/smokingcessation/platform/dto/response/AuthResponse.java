@@ -5,6 +5,8 @@ public class AuthResponse {
     private String token;
     private String tokenType = "Bearer";
     private Long expiresIn;
+    private String refreshToken;
+    private Long refreshExpiresIn;
     private UserResponse user;
 
     // Constructors
@@ -21,6 +23,14 @@ public class AuthResponse {
         return new AuthResponse(token, expiresIn, user);
     }
 
+    public static AuthResponse success(String token, Long expiresIn, String refreshToken,
+                                       Long refreshExpiresIn, UserResponse user) {
+        AuthResponse response = new AuthResponse(token, expiresIn, user);
+        response.setRefreshToken(refreshToken);
+        response.setRefreshExpiresIn(refreshExpiresIn);
+        return response;
+    }
+
     // Getters and Setters
     public String getToken() {
         return token;
@@ -46,6 +56,22 @@ public class AuthResponse {
         this.expiresIn = expiresIn;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public Long getRefreshExpiresIn() {
+        return refreshExpiresIn;
+    }
+
+    public void setRefreshExpiresIn(Long refreshExpiresIn) {
+        this.refreshExpiresIn = refreshExpiresIn;
+    }
+
     public UserResponse getUser() {
         return user;
     }
@@ -60,6 +86,7 @@ public class AuthResponse {
                 "token='[PROTECTED]'" +
                 ", tokenType='" + tokenType + '\'' +
                 ", expiresIn=" + expiresIn +
+                ", refreshToken='[PROTECTED]'" +
                 ", user=" + user +
                 '}';
     }
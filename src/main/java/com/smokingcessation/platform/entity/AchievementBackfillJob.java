@@ -0,0 +1,57 @@
+package com.smokingcessation.platform.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "achievement_backfill_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AchievementBackfillJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "achievement_id")
+    private Long achievementId; // null = toàn bộ danh mục huy hiệu
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.RUNNING;
+
+    @Column(name = "last_user_id", nullable = false)
+    private Long lastUserId = 0L; // checkpoint: các user có id <= giá trị này đã xử lý xong
+
+    @Column(name = "processed_users", nullable = false)
+    private Long processedUsers = 0L;
+
+    @Column(name = "awarded_count", nullable = false)
+    private Long awardedCount = 0L;
+
+    @Column(name = "owner_node", length = 64)
+    private String ownerNode; // node đang chạy job; updated_at là heartbeat của node đó
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+}
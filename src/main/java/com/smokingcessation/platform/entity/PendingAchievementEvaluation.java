@@ -0,0 +1,38 @@
+package com.smokingcessation.platform.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "pending_achievement_evaluations", indexes = {
+    @Index(name = "idx_pending_achievement_eval_updated_at", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingAchievementEvaluation {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId; // mỗi user tối đa một dòng, các lần ghi tiến trình được gộp lại
+
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt; // lần ghi đầu tiên chưa được chấm
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // lần ghi gần nhất
+
+    // DEFAULT để ddl-auto thêm được cột vào bảng đã có dữ liệu và để MERGE trong touch() không phải truyền
+    @Column(name = "attempts", nullable = false, columnDefinition = "int default 0")
+    private Integer attempts = 0; // số lần chấm thất bại liên tiếp
+
+    @Column(name = "retry_after")
+    private LocalDateTime retryAfter; // sweep không lấy lại dòng trước thời điểm này (backoff)
+
+    @Column(name = "parked", nullable = false, columnDefinition = "bit default 0")
+    private Boolean parked = false; // quá số lần thử: sweep bỏ qua, chỉ chấm lại khi user có ghi mới
+}
@@ -14,7 +14,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class PlanMilestone {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plan_milestone_seq")
+    @SequenceGenerator(name = "plan_milestone_seq", sequenceName = "plan_milestone_seq", allocationSize = 50)
     private Long id;
     @ManyToOne @JoinColumn(name="quit_plan_id", nullable=false)
     private QuitPlan quitPlan;
@@ -11,14 +11,21 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "progress_tracking")
+@Table(name = "progress_tracking", uniqueConstraints = {
+    // Một dòng mỗi user mỗi ngày; index của ràng buộc cũng phục vụ truy vấn lịch sử theo keyset
+    @UniqueConstraint(name = "uk_progress_tracking_user_date", columnNames = {"user_id", "tracking_date"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProgressTracking {
 
+    // Sequence + pooled optimizer để Hibernate gom insert thành batch.
+    // DEFAULT trên cột cho các insert JDBC/MERGE không truyền id (SQL Server không cho NEXT VALUE FOR trong MERGE)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "progress_tracking_seq")
+    @SequenceGenerator(name = "progress_tracking_seq", sequenceName = "progress_tracking_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default next value for progress_tracking_seq")
     private Long id;
 
     @ManyToOne
@@ -19,7 +19,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class QuitPlan {
-    @Id @GeneratedValue private Long id;
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quit_plan_seq")
+    @SequenceGenerator(name = "quit_plan_seq", sequenceName = "quit_plan_seq", allocationSize = 50)
+    private Long id;
     @ManyToOne @JoinColumn(name="user_id", nullable=false)
     private User user;
     @Column(name="start_date", nullable=false) private LocalDate startDate;
@@ -37,4 +40,4 @@ public class QuitPlan {
 
     @OneToMany(mappedBy="quitPlan", cascade=CascadeType.ALL, orphanRemoval=true)
     private List<UserProgress> progresses = new ArrayList<>();
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.smokingcessation.platform.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+    @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+    @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti; // claim "jti" của JWT bị thu hồi
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // bằng "exp" của token, sau thời điểm này có thể xóa
+
+    @CreationTimestamp
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+}
@@ -53,6 +53,12 @@ public class User {
     @Column(nullable = false)
     private UserStatus status = UserStatus.ACTIVE;
 
+    @Column(name = "security_stamp", columnDefinition = "int default 0")
+    private int securityStamp = 0; // tăng mỗi khi khóa tài khoản / đổi role, token cũ sẽ hết hiệu lực
+
+    @Column(name = "account_locked_until")
+    private LocalDateTime accountLockedUntil; // khóa tạm do đăng nhập sai nhiều lần
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
         name = "user_roles",
@@ -10,7 +10,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_achievements")
+@Table(name = "user_achievements", uniqueConstraints = {
+    // Mỗi huy hiệu chỉ trao một lần cho mỗi user; MERGE trong UserAchievementJdbcRepository dựa vào đây
+    @UniqueConstraint(name = "uk_user_achievements_user_achievement", columnNames = {"user_id", "achievement_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,7 +16,8 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class UserProgress {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_progress_seq")
+    @SequenceGenerator(name = "user_progress_seq", sequenceName = "user_progress_seq", allocationSize = 50)
     private Long id;
     @ManyToOne
     @JoinColumn(name="quit_plan_id", nullable=false)
@@ -25,4 +26,4 @@ public class UserProgress {
     @Column(name="log_date", nullable=false) private LocalDate logDate;
     @Column(nullable=false) private Integer smoked;
     @Column(length=255) private String note;
-}
\ No newline at end of file
+}
\ No newline at end of file
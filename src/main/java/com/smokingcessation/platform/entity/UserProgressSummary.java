@@ -0,0 +1,54 @@
+package com.smokingcessation.platform.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "user_progress_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProgressSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_tracking_date")
+    private LocalDate lastTrackingDate; // ngày ghi nhận mới nhất
+
+    @Column(name = "current_streak")
+    private Integer currentStreak = 0; // chuỗi ngày không hút tại ngày ghi nhận mới nhất
+
+    @Column(name = "max_streak")
+    private Integer maxStreak = 0; // chuỗi dài nhất từ trước tới nay
+
+    @Column(name = "prior_streak")
+    private Integer priorStreak = 0; // chuỗi mang sang ngày mới nhất, để sửa lại ngày đó trong O(1)
+
+    @Column(name = "prior_max_streak")
+    private Integer priorMaxStreak = 0; // chuỗi dài nhất trước ngày mới nhất
+
+    @Column(name = "total_money_saved", precision = 14, scale = 2)
+    private BigDecimal totalMoneySaved = BigDecimal.ZERO;
+
+    @Column(name = "total_days_tracked")
+    private Long totalDaysTracked = 0L;
+
+    @Column(name = "total_smoke_free_days")
+    private Long totalSmokeFreeDays = 0L;
+
+    @Column(name = "total_cigarettes_smoked")
+    private Long totalCigarettesSmoked = 0L;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,66 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.AchievementBackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AchievementBackfillJobRepository extends JpaRepository<AchievementBackfillJob, Long> {
+
+    List<AchievementBackfillJob> findByStatusAndUpdatedAtBeforeOrderByIdAsc(AchievementBackfillJob.Status status,
+                                                                           LocalDateTime staleBefore);
+
+    // Checkpoint, heartbeat và cập nhật trạng thái chỉ có hiệu lực với node đang giữ job;
+    // trả về 0 nghĩa là job đã bị node khác tiếp quản
+    @Transactional
+    @Modifying
+    @Query("UPDATE AchievementBackfillJob j SET j.lastUserId = :lastUserId, " +
+           "j.processedUsers = j.processedUsers + :users, j.awardedCount = j.awardedCount + :awarded, " +
+           "j.updatedAt = :now WHERE j.id = :id AND j.ownerNode = :owner")
+    int checkpoint(@Param("id") Long id, @Param("owner") String owner, @Param("lastUserId") Long lastUserId,
+                   @Param("users") long users, @Param("awarded") long awarded, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AchievementBackfillJob j SET j.updatedAt = :now WHERE j.id = :id AND j.ownerNode = :owner")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AchievementBackfillJob j SET j.status = :status, j.errorMessage = :errorMessage, " +
+           "j.updatedAt = :now, j.finishedAt = :finishedAt WHERE j.id = :id AND j.ownerNode = :owner")
+    int updateStatus(@Param("id") Long id, @Param("owner") String owner,
+                     @Param("status") AchievementBackfillJob.Status status,
+                     @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now,
+                     @Param("finishedAt") LocalDateTime finishedAt);
+
+    /**
+     * Take a FAILED job, or a RUNNING one whose owner stopped heartbeating, in one conditional update
+     *
+     * @return 1 when this node now owns the job, 0 when it is completed or still owned by a live node
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE achievement_backfill_jobs SET status = 'RUNNING', owner_node = :owner, " +
+                   "error_message = NULL, updated_at = :now, finished_at = NULL " +
+                   "WHERE id = :id AND (status = 'FAILED' OR (status = 'RUNNING' AND updated_at < :staleBefore))",
+           nativeQuery = true)
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE achievement_backfill_jobs SET status = 'FAILED', error_message = :errorMessage, " +
+                   "updated_at = :now, finished_at = :now " +
+                   "WHERE id = :id AND status = 'RUNNING' AND updated_at < :staleBefore",
+           nativeQuery = true)
+    int failIfStale(@Param("id") Long id, @Param("errorMessage") String errorMessage,
+                    @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+}
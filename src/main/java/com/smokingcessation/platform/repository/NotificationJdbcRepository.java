@@ -0,0 +1,46 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batch insert for notifications created in bulk (achievement awards)
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationJdbcRepository {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO notifications (user_id, title, message, type, frequency, is_read, sent_at, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+        Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void batchInsert(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = notifications.stream()
+            .map(n -> new Object[]{
+                n.getUser().getId(), n.getTitle(), n.getMessage(),
+                n.getType() != null ? n.getType().name() : null,
+                n.getFrequency() != null ? n.getFrequency().name() : null,
+                Boolean.TRUE.equals(n.getIsRead()),
+                n.getSentAt() != null ? Timestamp.valueOf(n.getSentAt()) : null,
+                now})
+            .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, args, INSERT_TYPES);
+    }
+}
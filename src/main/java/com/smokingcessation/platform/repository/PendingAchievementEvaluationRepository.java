@@ -0,0 +1,58 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.PendingAchievementEvaluation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PendingAchievementEvaluationRepository extends JpaRepository<PendingAchievementEvaluation, Long> {
+
+    // Một câu lệnh cho cả hai trường hợp: HOLDLOCK khóa khoảng khóa user_id nên hai lần ghi đầu tiên
+    // đồng thời chạy tuần tự thay vì cùng INSERT và một bên lỗi trùng khóa (làm rollback cả tiến trình)
+    @Modifying
+    @Query(value = "MERGE INTO pending_achievement_evaluations WITH (HOLDLOCK) AS t " +
+                   "USING (SELECT CAST(:userId AS BIGINT) AS user_id) AS s ON t.user_id = s.user_id " +
+                   "WHEN MATCHED THEN UPDATE SET updated_at = :now " +
+                   "WHEN NOT MATCHED THEN INSERT (user_id, requested_at, updated_at) VALUES (s.user_id, :now, :now);",
+           nativeQuery = true)
+    int touch(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Bỏ qua dòng đã park và dòng còn trong thời gian backoff
+    @Query("SELECT p.userId, p.requestedAt FROM PendingAchievementEvaluation p " +
+           "WHERE p.updatedAt <= :before AND p.parked = false " +
+           "AND (p.retryAfter IS NULL OR p.retryAfter <= :now) ORDER BY p.updatedAt")
+    List<Object[]> findDueUpdatedBefore(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now,
+                                        Pageable pageable);
+
+    @Query("SELECT p.attempts FROM PendingAchievementEvaluation p WHERE p.userId = :userId")
+    Optional<Integer> findAttempts(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PendingAchievementEvaluation p SET p.attempts = :attempts, p.retryAfter = :retryAfter, " +
+           "p.parked = :parked WHERE p.userId = :userId")
+    int recordFailure(@Param("userId") Long userId, @Param("attempts") int attempts,
+                      @Param("retryAfter") LocalDateTime retryAfter, @Param("parked") boolean parked);
+
+    // Chấm thành công nhưng dòng còn lại vì có ghi mới: bắt đầu lại từ đầu
+    @Transactional
+    @Modifying
+    @Query("UPDATE PendingAchievementEvaluation p SET p.attempts = 0, p.retryAfter = NULL, p.parked = false " +
+           "WHERE p.userId = :userId AND p.attempts > 0")
+    int clearFailures(@Param("userId") Long userId);
+
+    // Chỉ xóa khi không có lần ghi mới sau thời điểm bắt đầu chấm
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PendingAchievementEvaluation p WHERE p.userId = :userId AND p.updatedAt <= :startedAt")
+    int deleteHandled(@Param("userId") Long userId, @Param("startedAt") LocalDateTime startedAt);
+}
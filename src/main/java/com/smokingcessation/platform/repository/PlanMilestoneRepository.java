@@ -2,12 +2,20 @@ package com.smokingcessation.platform.repository;
 
 import com.smokingcessation.platform.entity.PlanMilestone;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PlanMilestoneRepository extends JpaRepository<PlanMilestone,Long> {
     List<PlanMilestone> findByQuitPlanIdOrderByStepIndex(Long planId);
     List<PlanMilestone> findByQuitPlanId(Long quitPlanId);
-}
\ No newline at end of file
+
+    // Mốc của nhiều kế hoạch trong một truy vấn; m.quitPlan.id đọc thẳng khóa ngoại, không nạp QuitPlan
+    @Query("SELECT m.quitPlan.id, m.stepIndex, m.dayOffset, m.targetCigarettes FROM PlanMilestone m " +
+           "WHERE m.quitPlan.id IN :planIds ORDER BY m.quitPlan.id, m.stepIndex")
+    List<Object[]> findRowsByQuitPlanIds(@Param("planIds") Collection<Long> planIds);
+}
\ No newline at end of file
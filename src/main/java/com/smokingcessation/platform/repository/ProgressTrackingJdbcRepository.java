@@ -0,0 +1,115 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.ProgressTracking;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC writes for progress_tracking: batches for the offline sync endpoint, where saving
+ * entities one by one would cost a round trip per row, and the atomic smoking-event upsert.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProgressTrackingJdbcRepository {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO progress_tracking (user_id, tracking_date, cigarettes_smoked, money_saved, days_smoke_free, " +
+        "current_streak, health_status, mood_score, craving_intensity, exercise_minutes, sleep_hours, notes, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+        Types.BIGINT, Types.DATE, Types.INTEGER, Types.DECIMAL, Types.INTEGER,
+        Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.DOUBLE, Types.VARCHAR, Types.TIMESTAMP
+    };
+
+    private static final String UPDATE_SQL =
+        "UPDATE progress_tracking SET cigarettes_smoked = ?, money_saved = ?, days_smoke_free = ?, current_streak = ?, " +
+        "health_status = ?, mood_score = ?, craving_intensity = ?, exercise_minutes = ?, sleep_hours = ?, notes = ? " +
+        "WHERE id = ?";
+
+    private static final int[] UPDATE_TYPES = {
+        Types.INTEGER, Types.DECIMAL, Types.INTEGER, Types.INTEGER,
+        Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.DOUBLE, Types.VARCHAR,
+        Types.BIGINT
+    };
+
+    private static final String UPDATE_STREAK_SQL =
+        "UPDATE progress_tracking SET days_smoke_free = ?, current_streak = ? WHERE id = ?";
+
+    private static final int[] UPDATE_STREAK_TYPES = {Types.INTEGER, Types.INTEGER, Types.BIGINT};
+
+    // HOLDLOCK giữ khóa khoảng khóa trên (user_id, tracking_date) tới hết transaction:
+    // hai lần ghi cùng ngày chạy tuần tự, không mất lượt cộng và không tạo hai dòng
+    private static final String INCREMENT_SQL =
+        "MERGE INTO progress_tracking WITH (HOLDLOCK) AS t " +
+        "USING (SELECT CAST(? AS BIGINT) AS user_id, CAST(? AS DATE) AS tracking_date) AS s " +
+        "ON t.user_id = s.user_id AND t.tracking_date = s.tracking_date " +
+        "WHEN MATCHED THEN UPDATE SET cigarettes_smoked = COALESCE(t.cigarettes_smoked, 0) + ? " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, tracking_date, cigarettes_smoked, money_saved, days_smoke_free, " +
+        "current_streak, exercise_minutes, created_at) VALUES (s.user_id, s.tracking_date, ?, 0, 0, 0, 0, ?) " +
+        "OUTPUT $action, inserted.id;";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void batchInsert(Long userId, List<ProgressTracking> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = rows.stream()
+            .map(p -> new Object[]{
+                userId, java.sql.Date.valueOf(p.getTrackingDate()), p.getCigarettesSmoked(), p.getMoneySaved(),
+                p.getDaysSmokeFreePeak(), p.getCurrentStreak(), healthStatus(p), p.getMoodScore(),
+                p.getCravingIntensity(), p.getExerciseMinutes(), p.getSleepHours(), p.getNotes(), now})
+            .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, args, INSERT_TYPES);
+    }
+
+    public void batchUpdate(List<ProgressTracking> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = rows.stream()
+            .map(p -> new Object[]{
+                p.getCigarettesSmoked(), p.getMoneySaved(), p.getDaysSmokeFreePeak(), p.getCurrentStreak(),
+                healthStatus(p), p.getMoodScore(), p.getCravingIntensity(), p.getExerciseMinutes(),
+                p.getSleepHours(), p.getNotes(), p.getId()})
+            .toList();
+        jdbcTemplate.batchUpdate(UPDATE_SQL, args, UPDATE_TYPES);
+    }
+
+    public void batchUpdateStreaks(List<ProgressTracking> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = rows.stream()
+            .map(p -> new Object[]{p.getDaysSmokeFreePeak(), p.getCurrentStreak(), p.getId()})
+            .toList();
+        jdbcTemplate.batchUpdate(UPDATE_STREAK_SQL, args, UPDATE_STREAK_TYPES);
+    }
+
+    /**
+     * Atomically add {@code cigarettes} to the user's row of that day, creating the row if needed.
+     * Must run inside the caller's transaction; derived columns are recomputed by the caller.
+     */
+    public Increment incrementCigarettes(Long userId, LocalDate trackingDate, int cigarettes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.queryForObject(INCREMENT_SQL,
+            (rs, rowNum) -> new Increment(rs.getLong(2), "INSERT".equals(rs.getString(1))),
+            userId, java.sql.Date.valueOf(trackingDate), cigarettes, cigarettes, now);
+    }
+
+    public record Increment(Long id, boolean inserted) {
+    }
+
+    private String healthStatus(ProgressTracking progress) {
+        return progress.getHealthStatus() != null ? progress.getHealthStatus().name() : null;
+    }
+}
@@ -1,9 +1,14 @@
 package com.smokingcessation.platform.repository;
 
+import com.smokingcessation.platform.dto.ProgressHistoryItem;
 import com.smokingcessation.platform.entity.ProgressTracking;
 import com.smokingcessation.platform.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -23,11 +28,69 @@ public interface ProgressTrackingRepository extends JpaRepository<ProgressTracki
     @Query("SELECT pt FROM ProgressTracking pt WHERE pt.user.id = :userId ORDER BY pt.trackingDate DESC")
     List<ProgressTracking> findByUserIdOrderByTrackingDateDesc(@Param("userId") Long userId);
  
+    // Lịch sử phân trang theo keyset (trackingDate, id) giảm dần, dùng index (user_id, tracking_date)
+    String HISTORY_SELECT = "SELECT new com.smokingcessation.platform.dto.ProgressHistoryItem(" +
+           "pt.id, pt.trackingDate, pt.cigarettesSmoked, pt.moneySaved, pt.currentStreak, pt.healthStatus, " +
+           "pt.moodScore, pt.cravingIntensity, pt.exerciseMinutes, pt.sleepHours) FROM ProgressTracking pt ";
+
+    @Query(HISTORY_SELECT + "WHERE pt.user.id = :userId ORDER BY pt.trackingDate DESC, pt.id DESC")
+    List<ProgressHistoryItem> findHistoryFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(HISTORY_SELECT + "WHERE pt.user.id = :userId AND (pt.trackingDate < :trackingDate " +
+           "OR (pt.trackingDate = :trackingDate AND pt.id < :id)) ORDER BY pt.trackingDate DESC, pt.id DESC")
+    List<ProgressHistoryItem> findHistoryPageAfter(@Param("userId") Long userId,
+                                                   @Param("trackingDate") LocalDate trackingDate,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
     @Query("SELECT pt FROM ProgressTracking pt WHERE pt.user.id = :userId AND pt.trackingDate BETWEEN :startDate AND :endDate")
     List<ProgressTracking> findByUserIdAndDateRange(@Param("userId") Long userId,
                                                    @Param("startDate") LocalDate startDate,
                                                    @Param("endDate") LocalDate endDate);
 
+    @Query("SELECT pt FROM ProgressTracking pt WHERE pt.user.id = :userId ORDER BY pt.trackingDate ASC")
+    List<ProgressTracking> findByUserIdOrderByTrackingDateAsc(@Param("userId") Long userId);
+
+    // Các ngày từ fromDate trở đi cùng với ngày ghi nhận liền trước nó (làm mốc tính chuỗi), một query duy nhất
+    @Query("SELECT pt FROM ProgressTracking pt WHERE pt.user.id = :userId AND (pt.trackingDate >= :fromDate " +
+           "OR pt.trackingDate = (SELECT MAX(p2.trackingDate) FROM ProgressTracking p2 " +
+           "WHERE p2.user.id = :userId AND p2.trackingDate < :fromDate)) ORDER BY pt.trackingDate ASC")
+    List<ProgressTracking> findFromDateWithPrevious(@Param("userId") Long userId, @Param("fromDate") LocalDate fromDate);
+
+    // Bản chỉ đọc cho đồng bộ theo lô: thực thể không bị dirty-check, ghi lại bằng JDBC batch
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT pt FROM ProgressTracking pt WHERE pt.user.id = :userId ORDER BY pt.trackingDate ASC")
+    List<ProgressTracking> findReadOnlyByUserIdOrderByTrackingDateAsc(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT pt FROM ProgressTracking pt WHERE pt.user.id = :userId AND (pt.trackingDate >= :fromDate " +
+           "OR pt.trackingDate = (SELECT MAX(p2.trackingDate) FROM ProgressTracking p2 " +
+           "WHERE p2.user.id = :userId AND p2.trackingDate < :fromDate)) ORDER BY pt.trackingDate ASC")
+    List<ProgressTracking> findReadOnlyFromDateWithPrevious(@Param("userId") Long userId,
+                                                            @Param("fromDate") LocalDate fromDate);
+
+    // Tổng hợp cho biểu đồ: tổng và (tổng, số giá trị khác null) của từng chỉ số, nhóm trong DB.
+    // cigarettesSmoked null được tính là ngày không hút, giống ProgressSummaryService.isSmokeFree
+    String ROLLUP_COLUMNS = "COUNT(pt), SUM(pt.cigarettesSmoked), SUM(pt.moneySaved), " +
+           "SUM(CASE WHEN COALESCE(pt.cigarettesSmoked, 0) = 0 THEN 1 ELSE 0 END), " +
+           "SUM(pt.moodScore), COUNT(pt.moodScore), SUM(pt.cravingIntensity), COUNT(pt.cravingIntensity), " +
+           "SUM(pt.sleepHours), COUNT(pt.sleepHours), SUM(pt.exerciseMinutes), COUNT(pt.exerciseMinutes) ";
+
+    @Query("SELECT pt.trackingDate, " + ROLLUP_COLUMNS +
+           "FROM ProgressTracking pt WHERE pt.user.id = :userId AND pt.trackingDate BETWEEN :from AND :to " +
+           "GROUP BY pt.trackingDate ORDER BY pt.trackingDate")
+    List<Object[]> rollupByDay(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT YEAR(pt.trackingDate), MONTH(pt.trackingDate), " + ROLLUP_COLUMNS +
+           "FROM ProgressTracking pt WHERE pt.user.id = :userId AND pt.trackingDate BETWEEN :from AND :to " +
+           "GROUP BY YEAR(pt.trackingDate), MONTH(pt.trackingDate) " +
+           "ORDER BY YEAR(pt.trackingDate), MONTH(pt.trackingDate)")
+    List<Object[]> rollupByMonth(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Duyệt user có dữ liệu theo khóa (keyset), dùng cho rebuild bảng tổng hợp
+    @Query("SELECT DISTINCT pt.user.id FROM ProgressTracking pt WHERE pt.user.id > :afterUserId ORDER BY pt.user.id")
+    List<Long> findUserIdsAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+
     @Query("SELECT MAX(pt.currentStreak) FROM ProgressTracking pt WHERE pt.user.id = :userId")
     Optional<Integer> findMaxStreakByUserId(@Param("userId") Long userId);
 
@@ -2,6 +2,7 @@ package com.smokingcessation.platform.repository;
 
 import com.smokingcessation.platform.entity.QuitPlan;
 import com.smokingcessation.platform.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +14,11 @@ import java.util.Optional;
 @Repository
 public interface QuitPlanRepository extends JpaRepository<QuitPlan, Long> {
     List<QuitPlan> findByUserId(Long userId);
+
+    // Chỉ lấy cột cần cho danh sách, không kéo theo User (ManyToOne EAGER)
+    @Query("SELECT p.id, p.startDate, p.quitMonths FROM QuitPlan p WHERE p.user.id = :userId ORDER BY p.id")
+    List<Object[]> findPlanRowsByUserId(@Param("userId") Long userId, Pageable pageable);
+
     Optional<QuitPlan> findTopByUserIdOrderByStartDateDesc(Long userId);
     QuitPlan findByUserAndIsDoneFalse(User user);
 }
@@ -0,0 +1,35 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    @Query("SELECT r.jti, r.expiresAt FROM RevokedToken r WHERE r.expiresAt > :now")
+    List<Object[]> findActive(@Param("now") LocalDateTime now);
+
+    @Query("SELECT r.jti, r.expiresAt FROM RevokedToken r WHERE r.revokedAt >= :since AND r.expiresAt > :now")
+    List<Object[]> findActiveRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    // Chỉ ghi nếu chưa có: logout lặp lại không ghi đè revoked_at (save() trên id tự gán là merge SELECT + ghi)
+    @Modifying
+    @Query(value = "MERGE INTO revoked_tokens WITH (HOLDLOCK) AS t " +
+                   "USING (SELECT CAST(:jti AS VARCHAR(36)) AS jti) AS s ON t.jti = s.jti " +
+                   "WHEN NOT MATCHED THEN INSERT (jti, user_id, expires_at, revoked_at) " +
+                   "VALUES (s.jti, :userId, :expiresAt, :now);",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("jti") String jti, @Param("userId") Long userId,
+                       @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+}
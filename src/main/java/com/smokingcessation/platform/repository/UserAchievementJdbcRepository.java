@@ -0,0 +1,72 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.Achievement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch insert for user_achievements; IDENTITY keys keep Hibernate from batching these.
+ * Each row is a MERGE WITH (HOLDLOCK) on (user_id, achievement_id): the range lock makes the
+ * existence check and the insert atomic, so live evaluation, several nodes and the backfill job
+ * can overlap without awarding a badge twice. uk_user_achievements_user_achievement backs it up.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserAchievementJdbcRepository {
+
+    private static final String INSERT_SQL =
+        "MERGE INTO user_achievements WITH (HOLDLOCK) AS t " +
+        "USING (SELECT ? AS user_id, ? AS achievement_id) AS s " +
+        "ON t.user_id = s.user_id AND t.achievement_id = s.achievement_id " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, achievement_id, earned_at, is_shared, created_at) " +
+        "VALUES (s.user_id, s.achievement_id, ?, ?, ?);";
+
+    private static final int[] INSERT_TYPES = {
+        Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.BOOLEAN, Types.TIMESTAMP
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return the awards that were actually inserted, grouped by user
+     */
+    public Map<Long, List<Achievement>> batchInsert(Map<Long, List<Achievement>> awards, LocalDateTime earnedAt) {
+        List<Long> userIds = new ArrayList<>();
+        List<Achievement> achievements = new ArrayList<>();
+        awards.forEach((userId, list) -> list.forEach(achievement -> {
+            userIds.add(userId);
+            achievements.add(achievement);
+        }));
+        if (achievements.isEmpty()) {
+            return Map.of();
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(earnedAt);
+        List<Object[]> args = new ArrayList<>(achievements.size());
+        for (int i = 0; i < achievements.size(); i++) {
+            Long userId = userIds.get(i);
+            Long achievementId = achievements.get(i).getId();
+            args.add(new Object[]{userId, achievementId, timestamp, false, timestamp});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, args, INSERT_TYPES);
+
+        // Chỉ tính các dòng MERGE thực sự insert (1); 0 = user đã có huy hiệu này.
+        // Không coi SUCCESS_NO_INFO (-2) là đã ghi: thà bỏ một thông báo còn hơn gửi trùng
+        Map<Long, List<Achievement>> inserted = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.computeIfAbsent(userIds.get(i), id -> new ArrayList<>()).add(achievements.get(i));
+            }
+        }
+        return inserted;
+    }
+}
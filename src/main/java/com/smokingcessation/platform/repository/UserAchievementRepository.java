@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,6 +22,12 @@ public interface UserAchievementRepository extends JpaRepository<UserAchievement
 
     boolean existsByUserAndAchievement(User user, Achievement achievement);
 
+    @Query("SELECT ua.achievement.id FROM UserAchievement ua WHERE ua.user.id = :userId")
+    List<Long> findAchievementIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT ua.user.id, ua.achievement.id FROM UserAchievement ua WHERE ua.user.id IN :userIds")
+    List<Object[]> findAchievementIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
     @Query("SELECT ua FROM UserAchievement ua WHERE ua.user.id = :userId ORDER BY ua.earnedAt DESC")
     List<UserAchievement> findByUserIdOrderByEarnedAtDesc(@Param("userId") Long userId);
 
@@ -16,5 +16,6 @@ public interface UserProgressRepository extends JpaRepository<UserProgress,Long>
     List<UserProgress> findByQuitPlanId(Long quitPlanId);
     List<UserProgress> findByQuitPlan(QuitPlan quitPlan);
     List<UserProgress> findAllByQuitPlanId(Long quitPlanId);
+    List<UserProgress> findByQuitPlanIdOrderByLogDate(Long quitPlanId);
 
-}
\ No newline at end of file
+}
\ No newline at end of file
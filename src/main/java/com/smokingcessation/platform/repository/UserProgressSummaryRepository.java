@@ -0,0 +1,44 @@
+package com.smokingcessation.platform.repository;
+
+import com.smokingcessation.platform.entity.UserProgressSummary;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserProgressSummaryRepository extends JpaRepository<UserProgressSummary, Long> {
+
+    // Tạo dòng tổng hợp nếu chưa có và giữ khóa X trên dòng đó tới hết transaction.
+    // HOLDLOCK khóa cả khoảng khóa khi dòng chưa tồn tại, nên hai lần ghi đầu tiên không cùng INSERT;
+    // nhánh MATCHED là UPDATE không đổi giá trị, chỉ để lấy khóa X (không nâng từ khóa S -> tránh deadlock)
+    @Modifying
+    @Query(value = "MERGE INTO user_progress_summary WITH (HOLDLOCK) AS t " +
+                   "USING (SELECT CAST(:userId AS BIGINT) AS user_id) AS s ON t.user_id = s.user_id " +
+                   "WHEN MATCHED THEN UPDATE SET current_streak = t.current_streak " +
+                   "WHEN NOT MATCHED THEN INSERT (user_id, current_streak, max_streak, prior_streak, prior_max_streak, " +
+                   "total_money_saved, total_days_tracked, total_smoke_free_days, total_cigarettes_smoked, updated_at) " +
+                   "VALUES (s.user_id, 0, 0, 0, 0, 0, 0, 0, 0, SYSDATETIME());",
+           nativeQuery = true)
+    int lockOrCreate(@Param("userId") Long userId);
+
+    // Khóa dòng tổng hợp để các lần ghi tiến trình của cùng một user chạy tuần tự
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserProgressSummary s WHERE s.userId = :userId")
+    Optional<UserProgressSummary> findForUpdate(@Param("userId") Long userId);
+
+    // Duyệt bảng tổng hợp theo keyset (backfill huy hiệu)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT s FROM UserProgressSummary s WHERE s.userId > :afterUserId ORDER BY s.userId")
+    List<UserProgressSummary> findPageAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+}
@@ -2,12 +2,16 @@ package com.smokingcessation.platform.repository;
 
 import com.smokingcessation.platform.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -30,4 +34,31 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u FROM User u JOIN u.roles r WHERE r.name = 'COACH'")
     List<User> findAllCoaches();
+
+    // Chỉ những user đã từng bị đổi security stamp (phần lớn user có stamp = 0)
+    @Query("SELECT u.id, u.securityStamp FROM User u WHERE u.securityStamp > 0")
+    List<Object[]> findChangedSecurityStamps();
+
+    @Query("SELECT u.id, u.securityStamp FROM User u WHERE u.securityStamp > 0 AND u.updatedAt >= :since")
+    List<Object[]> findSecurityStampsChangedSince(@Param("since") LocalDateTime since);
+
+    // Chỉ lấy username/email để dựng Bloom filter, đọc dạng stream không nạp entity
+    @Query("SELECT u.username, u.email FROM User u")
+    Stream<Object[]> streamUsernamesAndEmails();
+
+    // Khóa hàng loạt các tài khoản vượt ngưỡng đăng nhập sai (username hoặc email)
+    @Modifying
+    @Query("UPDATE User u SET u.accountLockedUntil = :until WHERE LOWER(u.username) IN :logins OR LOWER(u.email) IN :logins")
+    int lockAccountsUntil(@Param("logins") List<String> logins, @Param("until") LocalDateTime until);
+
+    @Query("SELECT u.id FROM User u WHERE LOWER(u.username) IN :logins OR LOWER(u.email) IN :logins")
+    List<Long> findIdsByLogins(@Param("logins") List<String> logins);
+
+    // Bulk update không chạy @UpdateTimestamp: tự set updatedAt để node khác nhận stamp mới khi refresh
+    @Modifying
+    @Query("UPDATE User u SET u.securityStamp = u.securityStamp + 1, u.updatedAt = CURRENT_TIMESTAMP WHERE u.id IN :ids")
+    int incrementSecurityStamps(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id, u.securityStamp FROM User u WHERE u.id IN :ids")
+    List<Object[]> findSecurityStamps(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,72 @@
+package com.smokingcessation.platform.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Minimal thread-safe Bloom filter over strings.
+ * {@link #mightContain} never returns false for a key that was put; false positives
+ * have to be confirmed against an exact structure by the caller.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int numBits;
+    private final int numHashes;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.min(Integer.MAX_VALUE - 64, Math.max(64, m));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+        this.bits = new AtomicLongArray((numBits + 63) >>> 6);
+    }
+
+    public void put(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int combined = h1 + i * h2;
+            if (combined < 0) {
+                combined = ~combined;
+            }
+            int index = combined % numBits;
+            long mask = 1L << index;
+            bits.getAndAccumulate(index >>> 6, mask, (current, bit) -> current | bit);
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int combined = h1 + i * h2;
+            if (combined < 0) {
+                combined = ~combined;
+            }
+            int index = combined % numBits;
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer
+     */
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53e87a5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,21 @@
+package com.smokingcessation.platform.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the client IP address used as a lockout / logging key.
+ * <p>
+ * X-Forwarded-For is not read here: the client controls it, so a brute-forcer could rotate it
+ * to dodge per-IP lockout. Behind a reverse proxy Tomcat's RemoteIpValve
+ * ({@code server.forward-headers-strategy: native}) rewrites the remote address from that header,
+ * but only for requests coming from {@code server.tomcat.remoteip.internal-proxies}.
+ */
+public final class ClientIpResolver {
+
+    private ClientIpResolver() {
+    }
+
+    public static String resolve(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
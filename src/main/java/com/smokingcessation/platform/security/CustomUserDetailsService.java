@@ -20,15 +20,22 @@ import java.util.Optional;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserService userService;
+    private final UserDetailsCache userDetailsCache;
 
     @Autowired
-    public CustomUserDetailsService(UserService userService) {
+    public CustomUserDetailsService(UserService userService, UserDetailsCache userDetailsCache) {
         this.userService = userService;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        UserDetails cached = userDetailsCache.getByLogin(usernameOrEmail);
+        if (cached != null) {
+            return cached;
+        }
+
         // Find user by username or email
         Optional<User> userOpt = userService.findByUsernameOrEmail(usernameOrEmail);
 
@@ -54,7 +61,9 @@ public class CustomUserDetailsService implements UserDetailsService {
         }
 
         // Create Spring Security UserDetails
-        return createUserDetails(user);
+        UserDetails userDetails = createUserDetails(user);
+        userDetailsCache.put(user, userDetails);
+        return userDetails;
     }
 
     /**
@@ -98,6 +107,11 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Transactional(readOnly = true)
     public UserDetails loadUserById(Long userId) throws UsernameNotFoundException {
+        UserDetails cached = userDetailsCache.getById(userId);
+        if (cached != null) {
+            return cached;
+        }
+
         Optional<User> userOpt = userService.findById(userId);
 
         if (userOpt.isEmpty()) {
@@ -119,6 +133,8 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("User account is temporarily locked: " + userId);
         }
 
-        return createUserDetails(user);
+        UserDetails userDetails = createUserDetails(user);
+        userDetailsCache.put(user, userDetails);
+        return userDetails;
     }
 }
@@ -0,0 +1,124 @@
+package com.smokingcessation.platform.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process {@link LoginAttemptStore}. Keys are spread over a fixed number of lock stripes
+ * so concurrent attempts for different usernames/IPs never contend on the same lock.
+ * The number of tracked keys is capped ({@code security.login-attempts.max-keys}) so username
+ * spraying cannot grow the map without bound; when full, rarely hit keys are evicted first.
+ * {@code LoginAttemptServiceTest} uses it as the stand-in store.
+ */
+@Component
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    private static final int STRIPES = 64;
+
+    // Upper bound of timestamps kept per key; counts above it are irrelevant for lockout decisions
+    private static final int MAX_TRACKED_PER_KEY = 256;
+
+    private static final long DEFAULT_MAX_KEYS = 100_000;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Map<String, Deque<Long>> failures;
+
+    public InMemoryLoginAttemptStore() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    @Autowired
+    public InMemoryLoginAttemptStore(@Value("${security.login-attempts.max-keys:100000}") long maxKeys) {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        // W-TinyLFU: một username bị dò nhiều lần được giữ lại, các tên chỉ thử một lần bị loại trước
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .<String, Deque<Long>>build()
+                .asMap();
+    }
+
+    @Override
+    public int recordFailure(String key, long nowMillis, long windowMillis) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Deque<Long> timestamps = failures.computeIfAbsent(key, k -> new ArrayDeque<>());
+            evictOlderThan(timestamps, nowMillis - windowMillis);
+            if (timestamps.size() >= MAX_TRACKED_PER_KEY) {
+                timestamps.pollFirst();
+            }
+            timestamps.addLast(nowMillis);
+            return timestamps.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int countFailures(String key, long nowMillis, long windowMillis) {
+        if (!failures.containsKey(key)) {
+            return 0;
+        }
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Deque<Long> timestamps = failures.get(key);
+            if (timestamps == null) {
+                return 0;
+            }
+            evictOlderThan(timestamps, nowMillis - windowMillis);
+            return timestamps.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void reset(String key) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            failures.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void purgeExpired(long nowMillis, long windowMillis) {
+        for (String key : failures.keySet()) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Deque<Long> timestamps = failures.get(key);
+                if (timestamps != null) {
+                    evictOlderThan(timestamps, nowMillis - windowMillis);
+                    if (timestamps.isEmpty()) {
+                        failures.remove(key);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void evictOlderThan(Deque<Long> timestamps, long cutoff) {
+        while (!timestamps.isEmpty() && timestamps.peekFirst() <= cutoff) {
+            timestamps.pollFirst();
+        }
+    }
+
+    private ReentrantLock lockFor(String key) {
+        return locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+}
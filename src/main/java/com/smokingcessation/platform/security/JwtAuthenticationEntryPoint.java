@@ -48,12 +48,6 @@ public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
      * Get client IP address from request
      */
     private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedForHeader = request.getHeader("X-Forwarded-For");
-        if (xForwardedForHeader == null) {
-            return request.getRemoteAddr();
-        } else {
-            // X-Forwarded-For can contain multiple IP addresses, get the first one
-            return xForwardedForHeader.split(",")[0].trim();
-        }
+        return ClientIpResolver.resolve(request);
     }
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package com.smokingcessation.platform.security;
 
 import com.smokingcessation.platform.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -17,17 +20,28 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final SecurityStampService securityStampService;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Build the principal from token claims instead of loading the user from the database
+    @Value("${jwt.stateless-auth.enabled:true}")
+    private boolean statelessAuthEnabled;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                                   SecurityStampService securityStampService,
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.securityStampService = securityStampService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -40,9 +54,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Extract JWT token from request
             String token = getTokenFromRequest(request);
 
-            // Validate token and set authentication
-            if (token != null && jwtService.validateToken(token)) {
-                setAuthenticationFromToken(token, request);
+            // Parse and validate token once, then set authentication
+            Claims claims = token != null ? jwtService.resolveClaims(token) : null;
+            if (claims != null && !tokenRevocationService.isRevoked(claims.getId())) {
+                setAuthenticationFromClaims(claims, request);
             }
 
         } catch (Exception e) {
@@ -66,18 +81,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Set Spring Security authentication from JWT token
+     * Set Spring Security authentication from verified JWT claims
      */
-    private void setAuthenticationFromToken(String token, HttpServletRequest request) {
+    private void setAuthenticationFromClaims(Claims claims, HttpServletRequest request) {
         try {
-            // Extract username from token
-            String username = jwtService.extractUsername(token);
-
-            // Load user details
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Extract username from claims
+            String username = claims.getSubject();
+
+            UserDetails userDetails;
+            if (statelessAuthEnabled && hasPrincipalClaims(claims)) {
+                // Stateless mode: no database round trip, security stamp decides revocation
+                if (!isSecurityStampCurrent(claims)) {
+                    return;
+                }
+                userDetails = createUserDetailsFromClaims(claims);
+            } else {
+                // Load user details
+                userDetails = userDetailsService.loadUserByUsername(username);
+            }
 
-            // Validate token against user details
-            if (jwtService.validateToken(token, userDetails)) {
+            // Validate claims against user details
+            if (jwtService.validateToken(claims, userDetails)) {
                 // Create authentication token
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
@@ -98,6 +122,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
+    /**
+     * Tokens issued by generateToken carry userId and role, enough to build the principal
+     */
+    private boolean hasPrincipalClaims(Claims claims) {
+        return claims.get("userId") != null && claims.get("role") != null;
+    }
+
+    /**
+     * Token is rejected once the user's security stamp was rotated after it was issued
+     */
+    private boolean isSecurityStampCurrent(Claims claims) {
+        Long userId = claims.get("userId", Long.class);
+        Integer tokenStamp = claims.get(SecurityStampService.STAMP_CLAIM, Integer.class);
+        return securityStampService.isCurrent(userId, tokenStamp);
+    }
+
+    /**
+     * Build UserDetails from token claims without touching the database
+     */
+    private UserDetails createUserDetailsFromClaims(Claims claims) {
+        String role = claims.get("role", String.class);
+        return org.springframework.security.core.userdetails.User.builder()
+                .username(claims.getSubject())
+                .password("")
+                .authorities(List.of(new SimpleGrantedAuthority("ROLE_" + role)))
+                .build();
+    }
+
     /**
      * Skip JWT authentication for public endpoints
      */
@@ -108,6 +160,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Public endpoints that don't require authentication
         return path.startsWith("/api/auth/login") ||
                 path.startsWith("/api/auth/register") ||
+                path.startsWith("/api/auth/refresh") ||
                 path.startsWith("/api/auth/check-username") ||
                 path.startsWith("/api/auth/check-email") ||
                 path.startsWith("/api/health") ||
@@ -0,0 +1,132 @@
+package com.smokingcessation.platform.security;
+
+import com.smokingcessation.platform.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Failed-login tracking. Counters live in a {@link LoginAttemptStore} (sliding window keyed by
+ * login and by client IP) and every lockout decision is made from those counters, so a bad password
+ * never costs a database write. Accounts that cross the threshold are persisted to
+ * {@code accountLockedUntil} in one batched update per flush interval, which keeps the lock across restarts.
+ */
+@Component
+@Slf4j
+public class LoginAttemptService {
+
+    private static final String LOGIN_PREFIX = "login:";
+    private static final String IP_PREFIX = "ip:";
+
+    // SQL Server giới hạn 2100 tham số mỗi câu lệnh
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    private final LoginAttemptStore store;
+    private final UserRepository userRepository;
+    private final SecurityStampService securityStampService;
+    private final int maxFailures;
+    private final int maxFailuresPerIp;
+    private final long windowMillis;
+
+    // Login vừa vượt ngưỡng, chờ ghi xuống DB ở lần flush kế tiếp
+    private final Map<String, Boolean> pendingLocks = new ConcurrentHashMap<>();
+
+    public LoginAttemptService(LoginAttemptStore store,
+                               UserRepository userRepository,
+                               SecurityStampService securityStampService,
+                               @Value("${security.login-attempts.max-failures:5}") int maxFailures,
+                               @Value("${security.login-attempts.max-failures-per-ip:50}") int maxFailuresPerIp,
+                               @Value("${security.login-attempts.window:15m}") Duration window) {
+        this.store = store;
+        this.userRepository = userRepository;
+        this.securityStampService = securityStampService;
+        this.maxFailures = maxFailures;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.windowMillis = window.toMillis();
+    }
+
+    /**
+     * True when the login or the client IP has too many recent failures
+     */
+    public boolean isBlocked(String login, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (login != null && store.countFailures(loginKey(login), now, windowMillis) >= maxFailures) {
+            return true;
+        }
+        return clientIp != null && store.countFailures(IP_PREFIX + clientIp, now, windowMillis) >= maxFailuresPerIp;
+    }
+
+    public void recordFailure(String login, String clientIp) {
+        long now = System.currentTimeMillis();
+        if (clientIp != null) {
+            store.recordFailure(IP_PREFIX + clientIp, now, windowMillis);
+        }
+        if (login == null) {
+            return;
+        }
+        int failures = store.recordFailure(loginKey(login), now, windowMillis);
+        // Chỉ ghi DB đúng một lần khi vừa chạm ngưỡng, không phải mỗi lần sai mật khẩu
+        if (failures == maxFailures) {
+            pendingLocks.put(normalize(login), Boolean.TRUE);
+        }
+    }
+
+    public void recordSuccess(String login) {
+        if (login != null) {
+            store.reset(loginKey(login));
+        }
+    }
+
+    /**
+     * Persist pending locks in batches and drop expired counters.
+     * Logins that do not belong to any account simply match no rows.
+     */
+    @Scheduled(fixedDelayString = "${security.login-attempts.flush-interval:30000}")
+    @Transactional
+    public void flushLocks() {
+        store.purgeExpired(System.currentTimeMillis(), windowMillis);
+        if (pendingLocks.isEmpty()) {
+            return;
+        }
+
+        List<String> logins = new ArrayList<>(pendingLocks.keySet());
+        logins.forEach(pendingLocks::remove);
+
+        LocalDateTime lockedUntil = LocalDateTime.now().plus(Duration.ofMillis(windowMillis));
+        int updated = 0;
+        for (int from = 0; from < logins.size(); from += FLUSH_CHUNK_SIZE) {
+            List<String> chunk = logins.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, logins.size()));
+            updated += userRepository.lockAccountsUntil(chunk, lockedUntil);
+            // Access token đã cấp trước khi khóa cũng phải hết hiệu lực
+            securityStampService.rotate(userRepository.findIdsByLogins(chunk));
+        }
+        log.info("Flushed {} login lock(s), {} account(s) locked until {}", logins.size(), updated, lockedUntil);
+    }
+
+    private String loginKey(String login) {
+        return LOGIN_PREFIX + normalize(login);
+    }
+
+    private String normalize(String login) {
+        return login.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Thrown when a login is rejected because of too many recent failures
+     */
+    public static class LoginBlockedException extends RuntimeException {
+        public LoginBlockedException() {
+            super("Account is temporarily locked due to multiple failed login attempts");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.smokingcessation.platform.security;
+
+/**
+ * Sliding-window counter of failed login attempts.
+ * Only the in-process {@link InMemoryLoginAttemptStore} ships. With several application nodes each
+ * node counts on its own, so a login can fail up to the threshold once per node before the lock
+ * is flushed to {@code accountLockedUntil}; from then on every node rejects it. A store backed by
+ * a shared cache can be registered as a {@code @Primary} bean to make the counters cluster-wide.
+ */
+public interface LoginAttemptStore {
+
+    /**
+     * Record a failure for the key and return the number of failures inside the window, including this one
+     */
+    int recordFailure(String key, long nowMillis, long windowMillis);
+
+    /**
+     * Number of failures for the key inside the window ending at nowMillis
+     */
+    int countFailures(String key, long nowMillis, long windowMillis);
+
+    void reset(String key);
+
+    /**
+     * Drop keys whose failures are all older than the window
+     */
+    void purgeExpired(long nowMillis, long windowMillis);
+}
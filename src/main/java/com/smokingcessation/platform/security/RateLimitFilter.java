@@ -0,0 +1,147 @@
+package com.smokingcessation.platform.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smokingcessation.platform.config.RateLimitProperties;
+import com.smokingcessation.platform.dto.response.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client token-bucket throttling for the public auth endpoints
+ * (login, registration, username/email availability checks).
+ * Runs before {@link JwtAuthenticationFilter} so rejected requests cost no token parsing.
+ * Buckets are keyed by endpoint group and client IP; idle buckets are evicted and the
+ * total number of buckets is capped by {@code rate-limit.max-buckets}.
+ * <p>
+ * The client IP is {@link HttpServletRequest#getRemoteAddr()}, never a raw X-Forwarded-For
+ * value: the client controls that header. Behind a reverse proxy the address is rewritten by
+ * Tomcat's RemoteIpValve ({@code server.forward-headers-strategy: native}) only when the
+ * request comes from {@code server.tomcat.remoteip.internal-proxies}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String OVERFLOW_CLIENT = "*";
+
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.rejected = Counter.builder("rate.limit.rejected")
+                .description("Requests rejected by the rate limiter")
+                .register(meterRegistry);
+        Gauge.builder("rate.limit.buckets", buckets, Map::size)
+                .description("Active rate limit buckets")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String groupName = resolveGroup(path);
+        if (groupName == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RateLimitProperties.Group group = properties.getGroups().get(groupName);
+        long now = System.nanoTime();
+        TokenBucket bucket = bucketFor(groupName, request.getRemoteAddr(), group, now);
+        TokenBucket.Probe probe = bucket.tryConsume(now);
+
+        long resetSeconds = TimeUnit.NANOSECONDS.toSeconds(probe.resetNanos() + TimeUnit.SECONDS.toNanos(1) - 1);
+        response.setHeader("RateLimit-Limit", String.valueOf(bucket.getCapacity()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(probe.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(resetSeconds));
+
+        if (!probe.consumed()) {
+            rejected.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, resetSeconds)));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Too many requests, please try again later"));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || properties.getGroups().isEmpty();
+    }
+
+    /**
+     * Remove buckets that have not been used for longer than the idle timeout
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:60000}")
+    public void evictIdleBuckets() {
+        long cutoff = System.nanoTime() - properties.getIdleTimeout().toNanos();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.getLastAccessNanos() - cutoff < 0);
+        int evicted = before - buckets.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    private String resolveGroup(String path) {
+        for (Map.Entry<String, RateLimitProperties.Group> entry : properties.getGroups().entrySet()) {
+            for (String pattern : entry.getValue().getPaths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    private TokenBucket bucketFor(String groupName, String clientIp, RateLimitProperties.Group group, long now) {
+        String key = groupName + ":" + clientIp;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxBuckets()) {
+            evictIdleBuckets();
+            if (buckets.size() >= properties.getMaxBuckets()) {
+                // Still full (e.g. address-spraying): new clients share one bucket per group
+                key = groupName + ":" + OVERFLOW_CLIENT;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(
+                group.getCapacity(), group.getRefillTokens(), group.getRefillPeriod().toNanos(), now));
+    }
+}
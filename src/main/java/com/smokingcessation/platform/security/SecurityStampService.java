@@ -0,0 +1,123 @@
+package com.smokingcessation.platform.security;
+
+import com.smokingcessation.platform.entity.User;
+import com.smokingcessation.platform.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the current security stamp of every user whose stamp was ever rotated.
+ * A JWT carries the stamp it was issued with; once the stamp is rotated
+ * (deactivation, suspension, role change, password change, lockout) older tokens stop authenticating
+ * without any database lookup on the request path.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SecurityStampService {
+
+    public static final String STAMP_CLAIM = "stamp";
+
+    private final UserRepository userRepository;
+
+    // Users that were never rotated are not stored: their stamp is 0
+    private final Map<Long, Integer> stamps = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime lastRefresh = LocalDateTime.now();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStamps() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        apply(userRepository.findChangedSecurityStamps());
+        lastRefresh = startedAt;
+        log.info("Loaded {} security stamps", stamps.size());
+    }
+
+    /**
+     * Pick up rotations done by other application nodes
+     */
+    @Scheduled(fixedDelayString = "${jwt.security-stamp.refresh-interval:60000}")
+    public void refreshStamps() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        apply(userRepository.findSecurityStampsChangedSince(lastRefresh.minusSeconds(5)));
+        lastRefresh = startedAt;
+    }
+
+    public int currentStamp(Long userId) {
+        return stamps.getOrDefault(userId, 0);
+    }
+
+    public boolean isCurrent(Long userId, Integer tokenStamp) {
+        return currentStamp(userId) == (tokenStamp == null ? 0 : tokenStamp);
+    }
+
+    /**
+     * Rotate the stamp of a user; caller is responsible for saving the entity.
+     * The in-memory value is published once the surrounding transaction commits.
+     */
+    public void rotate(User user) {
+        int newStamp = user.getSecurityStamp() + 1;
+        user.setSecurityStamp(newStamp);
+
+        Long userId = user.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stamps.merge(userId, newStamp, Math::max);
+                }
+            });
+        } else {
+            stamps.merge(userId, newStamp, Math::max);
+        }
+    }
+
+    /**
+     * Rotate the stamps of users that are not loaded as entities (password change, lockout flush).
+     * Increments in the database; the new values are published once the transaction commits.
+     */
+    @Transactional
+    public void rotate(Long userId) {
+        rotate(List.of(userId));
+    }
+
+    @Transactional
+    public void rotate(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        userRepository.incrementSecurityStamps(userIds);
+        List<Object[]> rows = userRepository.findSecurityStamps(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(rows);
+                }
+            });
+        } else {
+            apply(rows);
+        }
+    }
+
+    private void apply(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Long userId = (Long) row[0];
+            Integer stamp = (Integer) row[1];
+            stamps.merge(userId, stamp, Math::max);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.smokingcessation.platform.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. State is an immutable snapshot swapped with CAS,
+ * refill is computed lazily from the elapsed time on each attempt.
+ */
+public final class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+    private volatile long lastAccessNanos;
+
+    public TokenBucket(long capacity, long refillTokens, long refillPeriodNanos, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) refillTokens / refillPeriodNanos;
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /**
+     * Try to take one token. Remaining tokens are returned in the probe either way.
+     */
+    public Probe tryConsume(long nowNanos) {
+        lastAccessNanos = nowNanos;
+        while (true) {
+            State current = state.get();
+            double available = Math.min(capacity, current.tokens + (nowNanos - current.refilledAtNanos) * tokensPerNano);
+            boolean consumed = available >= 1;
+            State next = new State(consumed ? available - 1 : available, nowNanos);
+            if (state.compareAndSet(current, next)) {
+                return new Probe(consumed, (long) next.tokens, nanosUntil(next.tokens, consumed ? capacity : 1));
+            }
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    private long nanosUntil(double tokens, double target) {
+        if (tokens >= target) {
+            return 0;
+        }
+        return (long) Math.ceil((target - tokens) / tokensPerNano);
+    }
+
+    private record State(double tokens, long refilledAtNanos) {
+    }
+
+    /**
+     * Outcome of one attempt; resetNanos is the time until the bucket is full again,
+     * or until the next token when the request was rejected
+     */
+    public record Probe(boolean consumed, long remaining, long resetNanos) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.smokingcessation.platform.security;
+
+import com.smokingcessation.platform.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked JWT ids (claim "jti"), each kept until the token's own expiration.
+ * Lookups go through a Bloom filter first, so the common not-revoked case is a single
+ * in-memory probe; hits are confirmed against the exact set. The revoked_tokens table
+ * is the durable copy: loaded at startup, polled for revocations made on other nodes
+ * and compacted once entries expire.
+ */
+@Component
+@Slf4j
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final int MIN_EXPECTED_ENTRIES = 1024;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    // jti -> exp (epoch millis)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter = new BloomFilter(MIN_EXPECTED_ENTRIES, FALSE_POSITIVE_RATE);
+    private volatile int bloomCapacity = MIN_EXPECTED_ENTRIES;
+
+    private volatile LocalDateTime lastRefresh = LocalDateTime.now();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, MeterRegistry meterRegistry) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        Gauge.builder("jwt.revoked.tokens", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevokedTokens() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        apply(revokedTokenRepository.findActive(startedAt));
+        rebuildBloomFilter();
+        lastRefresh = startedAt;
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    /**
+     * Pick up revocations done by other application nodes
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval:60000}")
+    public void refreshRevokedTokens() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        apply(revokedTokenRepository.findActiveRevokedSince(lastRefresh.minusSeconds(5), startedAt));
+        lastRefresh = startedAt;
+    }
+
+    /**
+     * Drop expired entries from memory and from the table, then rebuild the Bloom filter
+     * (bits of removed entries cannot be cleared in place)
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.compaction-interval:3600000}")
+    @Transactional
+    public void compact() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        rebuildBloomFilter();
+        log.debug("Revocation compaction removed {} expired rows, {} tokens still revoked", deleted, revoked.size());
+    }
+
+    /**
+     * Revoke a token until its expiration. Tokens without jti cannot be revoked individually.
+     * The in-memory set is updated only after the row commits, so a rolled-back revocation is
+     * not left active on this node alone.
+     */
+    @Transactional
+    public void revoke(String jti, Long userId, Date expiration) {
+        if (jti == null || expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault());
+        revokedTokenRepository.insertIfAbsent(jti, userId, expiresAt, LocalDateTime.now());
+
+        long expiresAtMillis = expiration.getTime();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(jti, expiresAtMillis);
+                }
+            });
+        } else {
+            add(jti, expiresAtMillis);
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    private void apply(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            LocalDateTime expiresAt = (LocalDateTime) row[1];
+            add((String) row[0], expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private void add(String jti, long expiresAtMillis) {
+        // Exact set first: a Bloom hit is always confirmed against it
+        revoked.put(jti, expiresAtMillis);
+        bloomFilter.put(jti);
+        if (revoked.size() > bloomCapacity) {
+            rebuildBloomFilter();
+        }
+    }
+
+    private synchronized void rebuildBloomFilter() {
+        int capacity = Math.max(MIN_EXPECTED_ENTRIES, revoked.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomCapacity = capacity;
+        bloomFilter = rebuilt;
+        // Entries added while rebuilding may have gone to the old filter only
+        revoked.keySet().forEach(rebuilt::put);
+    }
+}
@@ -0,0 +1,108 @@
+package com.smokingcessation.platform.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smokingcessation.platform.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Bounded, TTL-limited cache in front of CustomUserDetailsService.
+ * Entries are reachable by username, email and user ID; any change to a user's
+ * status, password or roles must call {@link #evict(User)}.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> byLogin;
+    private final Cache<Long, UserDetails> byId;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${security.user-details-cache.max-size:10000}") long maxSize,
+                            @Value("${security.user-details-cache.ttl:5m}") Duration ttl) {
+        this.byLogin = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byLogin, "user.details.by-login");
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "user.details.by-id");
+    }
+
+    /**
+     * Lookup by username or email
+     */
+    public UserDetails getByLogin(String usernameOrEmail) {
+        return copyOf(byLogin.getIfPresent(normalize(usernameOrEmail)));
+    }
+
+    public UserDetails getById(Long userId) {
+        return copyOf(byId.getIfPresent(userId));
+    }
+
+    /**
+     * Stores a copy: the caller keeps {@code userDetails} and may hand it to Spring Security,
+     * which erases its credentials
+     */
+    public void put(User user, UserDetails userDetails) {
+        UserDetails copy = copyOf(userDetails);
+        byLogin.put(normalize(user.getUsername()), copy);
+        byLogin.put(normalize(user.getEmail()), copy);
+        byId.put(user.getId(), copy);
+    }
+
+    /**
+     * Evict now and again after the surrounding transaction commits, so a concurrent
+     * load cannot put the pre-commit password, status or role back into the cache
+     */
+    public void evict(User user) {
+        String username = normalize(user.getUsername());
+        String email = normalize(user.getEmail());
+        Long userId = user.getId();
+        evict(username, email, userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(username, email, userId);
+                }
+            });
+        }
+    }
+
+    private void evict(String username, String email, Long userId) {
+        byLogin.invalidate(username);
+        byLogin.invalidate(email);
+        if (userId != null) {
+            byId.invalidate(userId);
+        }
+    }
+
+    private String normalize(String login) {
+        return login == null ? "" : login.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Spring Security may erase credentials of the returned object, so callers always get a copy
+     */
+    private UserDetails copyOf(UserDetails cached) {
+        if (cached == null) {
+            return null;
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(cached).build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.smokingcessation.platform.security;
+
+import com.smokingcessation.platform.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters over normalized usernames and emails of every account.
+ * A negative answer means the name is certainly free, so availability checks can skip
+ * the database; a positive answer has to be confirmed with an exists query.
+ * Until the first build finishes every lookup reports a possible hit.
+ * <p>
+ * Accounts added while a rebuild streams the table are recorded and replayed into the new
+ * filters at the swap, so an add racing a rebuild is never lost.
+ */
+@Component
+@Slf4j
+public class UserIdentityIndex {
+
+    private static final int MIN_EXPECTED_USERS = 10_000;
+
+    private final UserRepository userRepository;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+    private volatile long capacity;
+    private final AtomicLong entries = new AtomicLong();
+
+    // Guards the filter swap against add(); addedDuringRebuild is non-null while a rebuild runs
+    private final Object swapLock = new Object();
+    private List<String[]> addedDuringRebuild;
+
+    public UserIdentityIndex(UserRepository userRepository,
+                             @Value("${security.identity-index.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Full rebuild: drops names that were changed and picks up accounts created on other nodes
+     */
+    @Scheduled(fixedDelayString = "${security.identity-index.rebuild-interval:3600000}",
+            initialDelayString = "${security.identity-index.rebuild-interval:3600000}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long expected = Math.max(MIN_EXPECTED_USERS, userRepository.count() * 2);
+        BloomFilter newUsernames = new BloomFilter(expected, falsePositiveRate);
+        BloomFilter newEmails = new BloomFilter(expected, falsePositiveRate);
+
+        synchronized (swapLock) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+
+        long count = 0;
+        try (Stream<Object[]> rows = userRepository.streamUsernamesAndEmails()) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                putIfPresent(newUsernames, (String) row[0]);
+                putIfPresent(newEmails, (String) row[1]);
+                count++;
+            }
+        } catch (RuntimeException e) {
+            // Keep serving from the old filters; stop recording adds for a swap that won't happen
+            synchronized (swapLock) {
+                addedDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (swapLock) {
+            for (String[] added : addedDuringRebuild) {
+                putIfPresent(newUsernames, added[0]);
+                putIfPresent(newEmails, added[1]);
+            }
+            count += addedDuringRebuild.size();
+            addedDuringRebuild = null;
+            usernames = newUsernames;
+            emails = newEmails;
+            capacity = expected;
+            entries.set(count);
+        }
+        log.info("User identity index built with {} accounts", count);
+    }
+
+    public boolean mightContainUsername(String username) {
+        BloomFilter filter = usernames;
+        return filter == null || username == null || filter.mightContain(normalize(username));
+    }
+
+    public boolean mightContainEmail(String email) {
+        BloomFilter filter = emails;
+        return filter == null || email == null || filter.mightContain(normalize(email));
+    }
+
+    /**
+     * Record a newly registered (or renamed) account
+     */
+    public void add(String username, String email) {
+        synchronized (swapLock) {
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(new String[]{username, email});
+            }
+            if (usernames == null || emails == null) {
+                return;
+            }
+            putIfPresent(usernames, username);
+            putIfPresent(emails, email);
+        }
+        // False-positive rate degrades past the sizing; the next scheduled rebuild resizes
+        if (entries.incrementAndGet() > capacity) {
+            log.warn("User identity index is over capacity ({} entries), rebuild pending", entries.get());
+        }
+    }
+
+    private void putIfPresent(BloomFilter filter, String value) {
+        if (value != null) {
+            filter.put(normalize(value));
+        }
+    }
+
+    private String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,321 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.entity.Achievement;
+import com.smokingcessation.platform.entity.AchievementBackfillJob;
+import com.smokingcessation.platform.entity.UserProgressSummary;
+import com.smokingcessation.platform.repository.AchievementBackfillJobRepository;
+import com.smokingcessation.platform.repository.UserAchievementJdbcRepository;
+import com.smokingcessation.platform.repository.UserAchievementRepository;
+import com.smokingcessation.platform.repository.UserProgressSummaryRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Awards achievements to users who already qualify, e.g. after an admin adds a new one.
+ * <p>
+ * Users are read from user_progress_summary by keyset, one page at a time; each page is
+ * split into chunks evaluated in parallel, one transaction per chunk (one earned-set query,
+ * one batched insert of awards, one batched insert of notifications). The last user id of a
+ * fully processed page is stored on the job, so a failed or interrupted job resumes from
+ * there. Awards go through the MERGE on the unique (user_id, achievement_id) key in
+ * {@link UserAchievementJdbcRepository}, so re-processing part of a page, or overlapping with
+ * the live AchievementEvaluationQueue, never awards a badge twice.
+ * Users whose summary row has not been built yet are not visited.
+ * <p>
+ * Several nodes may run backfills. A running job records its owner node and heartbeats through
+ * updated_at; checkpoints and status changes only apply while the node still owns the job.
+ * A RUNNING job is taken over only after its heartbeat is older than
+ * {@code achievements.backfill.stale-after}, so a job running on a live node is never resumed twice.
+ */
+@Service
+@Slf4j
+public class AchievementBackfillService {
+
+    private final AchievementBackfillJobRepository jobRepository;
+    private final UserProgressSummaryRepository summaryRepository;
+    private final UserAchievementRepository userAchievementRepository;
+    private final UserAchievementJdbcRepository userAchievementJdbcRepository;
+    private final NotificationService notificationService;
+    private final AchievementRuleEngine achievementRuleEngine;
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration staleAfter;
+
+    // Định danh của node này trong owner_node; mỗi lần khởi động là một node mới
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Mỗi node chỉ chạy một job tại một thời điểm
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Long currentJobId;
+    private volatile boolean ownershipLost;
+
+    public AchievementBackfillService(AchievementBackfillJobRepository jobRepository,
+                                      UserProgressSummaryRepository summaryRepository,
+                                      UserAchievementRepository userAchievementRepository,
+                                      UserAchievementJdbcRepository userAchievementJdbcRepository,
+                                      NotificationService notificationService,
+                                      AchievementRuleEngine achievementRuleEngine,
+                                      @Qualifier("achievementBackfillExecutor") ThreadPoolTaskExecutor executor,
+                                      PlatformTransactionManager transactionManager,
+                                      DataSource dataSource,
+                                      @Value("${achievements.backfill.chunk-size:200}") int chunkSize,
+                                      @Value("${achievements.backfill.parallelism:4}") int parallelism,
+                                      @Value("${achievements.backfill.stale-after:5m}") Duration staleAfter) {
+        this.jobRepository = jobRepository;
+        this.summaryRepository = summaryRepository;
+        this.userAchievementRepository = userAchievementRepository;
+        this.userAchievementJdbcRepository = userAchievementJdbcRepository;
+        this.notificationService = notificationService;
+        this.achievementRuleEngine = achievementRuleEngine;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = boundedParallelism(parallelism, dataSource);
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Every parallel chunk holds a pooled connection for its whole transaction, for the whole job.
+     * Keep them to at most half of the pool so requests are not starved while a backfill runs.
+     */
+    private static int boundedParallelism(int parallelism, DataSource dataSource) {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return parallelism;
+            }
+            int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            int limit = Math.max(1, poolSize / 2);
+            if (parallelism > limit) {
+                log.warn("achievements.backfill.parallelism={} is too close to the connection pool size {}, using {}",
+                    parallelism, poolSize, limit);
+                return limit;
+            }
+        } catch (SQLException e) {
+            log.debug("Could not read the connection pool size: {}", e.getMessage());
+        }
+        return parallelism;
+    }
+
+    /**
+     * Start a backfill of one achievement, or of the whole catalog when {@code achievementId} is null
+     */
+    public AchievementBackfillJob start(Long achievementId) {
+        if (achievementId != null && !achievementRuleEngine.catalog().contains(achievementId)) {
+            throw new IllegalArgumentException("Huy hiệu không tồn tại hoặc không thể xét tự động: " + achievementId);
+        }
+        acquire();
+        try {
+            AchievementBackfillJob job = new AchievementBackfillJob();
+            job.setAchievementId(achievementId);
+            job.setOwnerNode(nodeId);
+            job.setUpdatedAt(LocalDateTime.now());
+            job = jobRepository.save(job);
+            submit(job);
+            return job;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Continue a failed or interrupted job from its checkpoint. A RUNNING job is only taken
+     * over once its owner has stopped heartbeating.
+     */
+    public AchievementBackfillJob resume(Long jobId) {
+        AchievementBackfillJob job = jobRepository.findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy job backfill với ID: " + jobId));
+        if (job.getStatus() == AchievementBackfillJob.Status.COMPLETED) {
+            throw new IllegalArgumentException("Job backfill đã hoàn thành: " + jobId);
+        }
+        acquire();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (jobRepository.claim(jobId, nodeId, now, now.minus(staleAfter)) == 0) {
+                throw new IllegalStateException("Job backfill đang chạy trên một node khác: " + jobId);
+            }
+            job.setStatus(AchievementBackfillJob.Status.RUNNING);
+            job.setOwnerNode(nodeId);
+            job.setErrorMessage(null);
+            submit(job);
+            return job;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    public Optional<AchievementBackfillJob> getJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Jobs still RUNNING whose owner stopped heartbeating were interrupted (restart, crash).
+     * Checked at startup and then periodically, since a job left by a restart only turns stale
+     * after {@code stale-after}. Only one job runs per node, so the oldest stale job is taken over
+     * and the other stale ones are marked FAILED; they keep their checkpoint and can be resumed
+     * by an admin. Jobs of live nodes are left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${achievements.backfill.takeover-interval:60000}",
+            initialDelayString = "${achievements.backfill.takeover-interval:60000}")
+    public void resumeInterrupted() {
+        if (running.get()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(staleAfter);
+        List<AchievementBackfillJob> interrupted = jobRepository.findByStatusAndUpdatedAtBeforeOrderByIdAsc(
+            AchievementBackfillJob.Status.RUNNING, staleBefore);
+        if (interrupted.isEmpty() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            AchievementBackfillJob job = interrupted.get(0);
+            if (jobRepository.claim(job.getId(), nodeId, now, staleBefore) == 0) {
+                // Node khác đã tiếp quản trước
+                running.set(false);
+                return;
+            }
+            for (AchievementBackfillJob other : interrupted.subList(1, interrupted.size())) {
+                if (jobRepository.failIfStale(other.getId(), "Bị gián đoạn, cần resume thủ công", now, staleBefore) > 0) {
+                    log.warn("Achievement backfill job {} was interrupted at user {}, marked FAILED",
+                        other.getId(), other.getLastUserId());
+                }
+            }
+
+            log.info("Resuming achievement backfill job {} after user {}", job.getId(), job.getLastUserId());
+            job.setOwnerNode(nodeId);
+            submit(job);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Keep the running job's updated_at fresh so other nodes do not take it over
+     */
+    @Scheduled(fixedDelayString = "${achievements.backfill.heartbeat-interval:30000}")
+    public void heartbeat() {
+        Long jobId = currentJobId;
+        if (jobId != null && jobRepository.heartbeat(jobId, nodeId, LocalDateTime.now()) == 0) {
+            log.warn("Achievement backfill job {} was taken over by another node, stopping here", jobId);
+            ownershipLost = true;
+        }
+    }
+
+    private void acquire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Đang có một job backfill huy hiệu chạy");
+        }
+    }
+
+    private void submit(AchievementBackfillJob job) {
+        Long jobId = job.getId();
+        Long achievementId = job.getAchievementId();
+        long afterUserId = job.getLastUserId();
+        executor.execute(() -> run(jobId, achievementId, afterUserId));
+    }
+
+    private void run(Long jobId, Long achievementId, long afterUserId) {
+        ownershipLost = false;
+        currentJobId = jobId;
+        try {
+            AchievementRuleEngine.Catalog catalog = achievementRuleEngine.catalog();
+            while (true) {
+                if (ownershipLost) {
+                    return;
+                }
+                List<UserProgressSummary> page =
+                    summaryRepository.findPageAfter(afterUserId, PageRequest.of(0, chunkSize * parallelism));
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+                for (int from = 0; from < page.size(); from += chunkSize) {
+                    List<UserProgressSummary> chunk = page.subList(from, Math.min(from + chunkSize, page.size()));
+                    chunks.add(CompletableFuture.supplyAsync(() -> processChunk(chunk, achievementId, catalog), executor));
+                }
+                long awarded = 0;
+                for (CompletableFuture<Integer> chunk : chunks) {
+                    awarded += chunk.join();
+                }
+
+                afterUserId = page.get(page.size() - 1).getUserId();
+                if (jobRepository.checkpoint(jobId, nodeId, afterUserId, page.size(), awarded, LocalDateTime.now()) == 0) {
+                    log.warn("Achievement backfill job {} was taken over by another node, stopping here", jobId);
+                    return;
+                }
+            }
+            LocalDateTime now = LocalDateTime.now();
+            jobRepository.updateStatus(jobId, nodeId, AchievementBackfillJob.Status.COMPLETED, null, now, now);
+            log.info("Achievement backfill job {} completed", jobId);
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Achievement backfill job {} failed after user {}", jobId, afterUserId, cause);
+            String message = String.valueOf(cause.getMessage());
+            LocalDateTime now = LocalDateTime.now();
+            jobRepository.updateStatus(jobId, nodeId, AchievementBackfillJob.Status.FAILED,
+                message.length() > 1000 ? message.substring(0, 1000) : message, now, now);
+        } finally {
+            currentJobId = null;
+            running.set(false);
+        }
+    }
+
+    private int processChunk(List<UserProgressSummary> chunk, Long achievementId, AchievementRuleEngine.Catalog catalog) {
+        Integer awarded = transactionTemplate.execute(status -> {
+            List<Long> userIds = chunk.stream().map(UserProgressSummary::getUserId).toList();
+            Map<Long, List<Long>> earnedByUser = new HashMap<>();
+            for (Object[] row : userAchievementRepository.findAchievementIdsByUserIds(userIds)) {
+                earnedByUser.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            }
+
+            Map<Long, List<Achievement>> awards = new LinkedHashMap<>();
+            for (UserProgressSummary summary : chunk) {
+                List<Achievement> newlyEarned = catalog.newlyEarned(AchievementRuleEngine.Metrics.of(summary),
+                    catalog.earnedSet(earnedByUser.getOrDefault(summary.getUserId(), List.of())));
+                if (achievementId != null) {
+                    newlyEarned.removeIf(achievement -> !achievementId.equals(achievement.getId()));
+                }
+                if (!newlyEarned.isEmpty()) {
+                    awards.put(summary.getUserId(), newlyEarned);
+                }
+            }
+
+            Map<Long, List<Achievement>> inserted = userAchievementJdbcRepository.batchInsert(awards, LocalDateTime.now());
+            notificationService.sendAchievementNotifications(inserted);
+            return inserted.values().stream().mapToInt(List::size).sum();
+        });
+        return awarded != null ? awarded : 0;
+    }
+}
@@ -0,0 +1,237 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.repository.PendingAchievementEvaluationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs achievement evaluation off the request thread.
+ * <p>
+ * Every progress write leaves a row in pending_achievement_evaluations in the same
+ * transaction, and after commit the user is queued in memory. Writes for the same user
+ * inside the coalescing window collapse into one evaluation; at most one evaluation per
+ * user runs at a time. The row is removed once evaluated, so users queued when the node
+ * stopped (or whose evaluation failed) are picked up again by the sweep.
+ * <p>
+ * A failed evaluation counts an attempt on the row and is retried by the sweep only after an
+ * exponential backoff. After {@code max-attempts} failures the row is parked: the sweep skips it,
+ * and the user is evaluated again only on their next progress write (a success removes the row).
+ * <p>
+ * The drain runs on its own thread rather than the shared @Scheduled pool, so a slow job there
+ * (index rebuild, compaction) cannot hold back awards: lag stays around window + drain-interval.
+ */
+@Component
+@Slf4j
+public class AchievementEvaluationQueue {
+
+    private final PendingAchievementEvaluationRepository pendingRepository;
+    private final AchievementService achievementService;
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration window;
+    private final Duration drainInterval;
+    private final Duration staleAfter;
+    private final int sweepBatchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final ThreadPoolTaskScheduler drainScheduler = new ThreadPoolTaskScheduler();
+
+    // userId -> thời điểm yêu cầu sớm nhất chưa được chấm
+    private final Map<Long, Instant> queued = new ConcurrentHashMap<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Timer lagTimer;
+    private final Counter failures;
+    private final Counter parked;
+
+    public AchievementEvaluationQueue(PendingAchievementEvaluationRepository pendingRepository,
+                                      AchievementService achievementService,
+                                      @Qualifier("achievementExecutor") ThreadPoolTaskExecutor executor,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${achievements.evaluation.window:2s}") Duration window,
+                                      @Value("${achievements.evaluation.drain-interval:500ms}") Duration drainInterval,
+                                      @Value("${achievements.evaluation.stale-after:2m}") Duration staleAfter,
+                                      @Value("${achievements.evaluation.sweep-batch-size:500}") int sweepBatchSize,
+                                      @Value("${achievements.evaluation.max-attempts:5}") int maxAttempts,
+                                      @Value("${achievements.evaluation.retry-backoff:1m}") Duration retryBackoff,
+                                      @Value("${achievements.evaluation.max-retry-backoff:1h}") Duration maxRetryBackoff) {
+        this.pendingRepository = pendingRepository;
+        this.achievementService = achievementService;
+        this.executor = executor;
+        this.window = window;
+        this.drainInterval = drainInterval;
+        this.staleAfter = staleAfter;
+        this.sweepBatchSize = sweepBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+
+        this.lagTimer = Timer.builder("achievements.evaluation.lag")
+                .description("Time from the first progress write to the start of its evaluation")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.failures = Counter.builder("achievements.evaluation.failures")
+                .register(meterRegistry);
+        this.parked = Counter.builder("achievements.evaluation.parked")
+                .description("Pending evaluations parked after max-attempts failures")
+                .register(meterRegistry);
+        Gauge.builder("achievements.evaluation.queued", queued, Map::size)
+                .description("Users waiting for evaluation on this node")
+                .register(meterRegistry);
+        Gauge.builder("achievements.evaluation.oldest", this, AchievementEvaluationQueue::oldestQueuedSeconds)
+                .description("Age in seconds of the oldest queued request on this node")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Durable part: runs inside the write transaction, so the pending row commits with the progress
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void markPending(ProgressRecordedEvent event) {
+        pendingRepository.touch(event.userId(), LocalDateTime.now());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProgressRecorded(ProgressRecordedEvent event) {
+        queued.putIfAbsent(event.userId(), event.occurredAt());
+    }
+
+    @PostConstruct
+    public void startDrain() {
+        drainScheduler.setPoolSize(1);
+        drainScheduler.setThreadNamePrefix("achievement-drain-");
+        drainScheduler.initialize();
+        drainScheduler.scheduleWithFixedDelay(this::drain, drainInterval);
+    }
+
+    @PreDestroy
+    public void stopDrain() {
+        drainScheduler.shutdown();
+    }
+
+    /**
+     * Hand users whose window has passed to the worker pool
+     */
+    public void drain() {
+        Instant due = Instant.now().minus(window);
+        for (Map.Entry<Long, Instant> entry : queued.entrySet()) {
+            Long userId = entry.getKey();
+            Instant requestedAt = entry.getValue();
+            if (requestedAt.isAfter(due) || inFlight.contains(userId)) {
+                continue;
+            }
+            if (!queued.remove(userId, requestedAt)) {
+                continue;
+            }
+            inFlight.add(userId);
+            try {
+                executor.execute(() -> evaluate(userId, requestedAt));
+            } catch (TaskRejectedException e) {
+                // Pool đầy: trả lại hàng đợi, lượt drain sau thử tiếp
+                inFlight.remove(userId);
+                queued.merge(userId, requestedAt, (current, previous) -> current.isBefore(previous) ? current : previous);
+                return;
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPending() {
+        int recovered = enqueuePendingUpdatedBefore(LocalDateTime.now());
+        if (recovered > 0) {
+            log.info("Re-queued {} pending achievement evaluations", recovered);
+        }
+    }
+
+    /**
+     * Pick up rows whose evaluation was lost (node stopped, evaluation failed and its backoff passed)
+     */
+    @Scheduled(fixedDelayString = "${achievements.evaluation.sweep-interval:60000}")
+    public void sweepStale() {
+        enqueuePendingUpdatedBefore(LocalDateTime.now().minus(staleAfter));
+    }
+
+    private int enqueuePendingUpdatedBefore(LocalDateTime before) {
+        int count = 0;
+        for (Object[] row : pendingRepository.findDueUpdatedBefore(before, LocalDateTime.now(),
+                PageRequest.of(0, sweepBatchSize))) {
+            Instant requestedAt = ((LocalDateTime) row[1]).atZone(ZoneId.systemDefault()).toInstant();
+            queued.putIfAbsent((Long) row[0], requestedAt);
+            count++;
+        }
+        return count;
+    }
+
+    private void evaluate(Long userId, Instant requestedAt) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        lagTimer.record(Duration.between(requestedAt, Instant.now()));
+        try {
+            achievementService.checkAndAwardAchievements(userId);
+            if (pendingRepository.deleteHandled(userId, startedAt) == 0) {
+                pendingRepository.clearFailures(userId);
+            }
+        } catch (Exception e) {
+            failures.increment();
+            recordFailure(userId, e);
+        } finally {
+            inFlight.remove(userId);
+        }
+    }
+
+    private void recordFailure(Long userId, Exception failure) {
+        try {
+            int attempts = pendingRepository.findAttempts(userId).orElse(0) + 1;
+            if (attempts >= maxAttempts) {
+                pendingRepository.recordFailure(userId, attempts, null, true);
+                parked.increment();
+                log.error("Achievement evaluation failed {} times for user {}, parked until the next progress write",
+                        attempts, userId, failure);
+                return;
+            }
+            // retry-backoff, gấp đôi sau mỗi lần thất bại, tối đa max-retry-backoff
+            Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+            if (backoff.compareTo(maxRetryBackoff) > 0) {
+                backoff = maxRetryBackoff;
+            }
+            pendingRepository.recordFailure(userId, attempts, LocalDateTime.now().plus(backoff), false);
+            log.warn("Achievement evaluation failed for user {} (attempt {}), retrying after {}: {}",
+                    userId, attempts, backoff, failure.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Could not record the failed achievement evaluation of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private double oldestQueuedSeconds() {
+        Instant now = Instant.now();
+        return queued.values().stream()
+                .mapToLong(requestedAt -> Duration.between(requestedAt, now).toMillis())
+                .max()
+                .orElse(0L) / 1000.0;
+    }
+}
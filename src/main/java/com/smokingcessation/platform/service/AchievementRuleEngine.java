@@ -0,0 +1,212 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.entity.Achievement;
+import com.smokingcessation.platform.entity.UserProgressSummary;
+import com.smokingcessation.platform.repository.AchievementRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory, precompiled view of the achievement catalog.
+ * <p>
+ * Achievements of each supported type are sorted by threshold and given contiguous
+ * indexes, so "which thresholds does this value cross" is a binary search, and the
+ * achievements a user already holds are a BitSet over the same indexes. Catalog
+ * changes made through AchievementService call {@link #reload()}; other nodes pick
+ * them up on the periodic refresh.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AchievementRuleEngine {
+
+    private final AchievementRepository achievementRepository;
+
+    private volatile Catalog catalog;
+
+    // Chạy ngay khi khởi động, sau đó định kỳ để nhận thay đổi từ node khác
+    @Scheduled(fixedDelayString = "${achievements.catalog.refresh-interval:300000}")
+    public void refresh() {
+        catalog = Catalog.compile(achievementRepository.findAll());
+    }
+
+    /**
+     * Recompile once the surrounding transaction (if any) has committed the catalog change
+     */
+    public void reload() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh();
+                }
+            });
+        } else {
+            refresh();
+        }
+    }
+
+    public Catalog catalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            refresh();
+            current = catalog;
+        }
+        return current;
+    }
+
+    /**
+     * Values the thresholds are compared against, taken from user_progress_summary
+     */
+    public record Metrics(long maxStreak, long currentStreak, long moneySavedCents) {
+
+        public static Metrics of(UserProgressSummary summary) {
+            BigDecimal money = summary.getTotalMoneySaved() != null ? summary.getTotalMoneySaved() : BigDecimal.ZERO;
+            return new Metrics(
+                summary.getMaxStreak() != null ? summary.getMaxStreak() : 0,
+                summary.getCurrentStreak() != null ? summary.getCurrentStreak() : 0,
+                money.setScale(2, RoundingMode.FLOOR).unscaledValue().longValue());
+        }
+
+        long valueOf(Achievement.AchievementType type) {
+            return switch (type) {
+                case DAYS_SMOKE_FREE -> maxStreak;
+                case STREAK -> currentStreak;
+                case MONEY_SAVED -> moneySavedCents;
+                default -> Long.MIN_VALUE;
+            };
+        }
+    }
+
+    public static final class Catalog {
+
+        private final Achievement[] achievements; // index -> achievement, nhóm theo loại, tăng dần theo ngưỡng
+        private final Map<Long, Integer> indexById;
+        private final Map<Achievement.AchievementType, Rule> rules;
+
+        private Catalog(Achievement[] achievements, Map<Long, Integer> indexById,
+                        Map<Achievement.AchievementType, Rule> rules) {
+            this.achievements = achievements;
+            this.indexById = indexById;
+            this.rules = rules;
+        }
+
+        static Catalog compile(List<Achievement> all) {
+            List<Achievement> ordered = new ArrayList<>();
+            Map<Achievement.AchievementType, Rule> rules = new EnumMap<>(Achievement.AchievementType.class);
+            for (Achievement.AchievementType type : Achievement.AchievementType.values()) {
+                List<Achievement> ofType = new ArrayList<>();
+                for (Achievement achievement : all) {
+                    if (achievement.getType() == type && threshold(achievement) != null) {
+                        ofType.add(achievement);
+                    }
+                }
+                if (ofType.isEmpty()) {
+                    continue;
+                }
+                ofType.sort(Comparator.comparingLong(Catalog::threshold));
+                long[] thresholds = new long[ofType.size()];
+                for (int i = 0; i < thresholds.length; i++) {
+                    thresholds[i] = threshold(ofType.get(i));
+                }
+                rules.put(type, new Rule(ordered.size(), thresholds));
+                ordered.addAll(ofType);
+            }
+
+            Map<Long, Integer> indexById = new HashMap<>();
+            for (int i = 0; i < ordered.size(); i++) {
+                indexById.put(ordered.get(i).getId(), i);
+            }
+            log.debug("Compiled {} achievement rules", ordered.size());
+            return new Catalog(ordered.toArray(new Achievement[0]), indexById, rules);
+        }
+
+        /**
+         * Threshold in the unit of {@link Metrics}, null when the achievement cannot be evaluated automatically
+         */
+        private static Long threshold(Achievement achievement) {
+            return switch (achievement.getType()) {
+                case DAYS_SMOKE_FREE, STREAK -> achievement.getTargetValue() != null
+                    ? Long.valueOf(achievement.getTargetValue()) : null;
+                case MONEY_SAVED -> achievement.getTargetMoney() != null
+                    ? achievement.getTargetMoney().setScale(2, RoundingMode.CEILING).unscaledValue().longValue() : null;
+                default -> null;
+            };
+        }
+
+        /**
+         * Earned set of a user from the achievement ids they hold; ids outside the rules are ignored
+         */
+        public BitSet earnedSet(Collection<Long> achievementIds) {
+            BitSet earned = new BitSet(achievements.length);
+            for (Long id : achievementIds) {
+                Integer index = indexById.get(id);
+                if (index != null) {
+                    earned.set(index);
+                }
+            }
+            return earned;
+        }
+
+        /**
+         * Achievements whose threshold is reached by {@code metrics} and which are not in {@code earned}
+         */
+        public List<Achievement> newlyEarned(Metrics metrics, BitSet earned) {
+            List<Achievement> result = new ArrayList<>();
+            for (Map.Entry<Achievement.AchievementType, Rule> entry : rules.entrySet()) {
+                Rule rule = entry.getValue();
+                int end = rule.start + rule.crossed(metrics.valueOf(entry.getKey()));
+                for (int i = earned.nextClearBit(rule.start); i < end; i = earned.nextClearBit(i + 1)) {
+                    result.add(achievements[i]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Whether the achievement is part of the compiled rules (exists and can be evaluated automatically)
+         */
+        public boolean contains(Long achievementId) {
+            return indexById.containsKey(achievementId);
+        }
+
+        public int size() {
+            return achievements.length;
+        }
+    }
+
+    private record Rule(int start, long[] thresholds) {
+
+        /**
+         * Number of thresholds {@code <= value}
+         */
+        int crossed(long value) {
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -4,21 +4,20 @@ import com.smokingcessation.platform.config.EmailService;
 import com.smokingcessation.platform.entity.Achievement;
 import com.smokingcessation.platform.entity.UserAchievement;
 import com.smokingcessation.platform.entity.User;
-import com.smokingcessation.platform.entity.ProgressTracking;
 import com.smokingcessation.platform.repository.AchievementRepository;
+import com.smokingcessation.platform.repository.UserAchievementJdbcRepository;
 import com.smokingcessation.platform.repository.UserAchievementRepository;
-import com.smokingcessation.platform.repository.ProgressTrackingRepository;
 import com.smokingcessation.platform.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.Year;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -27,7 +26,9 @@ public class AchievementService {
 
     private final AchievementRepository achievementRepository;
     private final UserAchievementRepository userAchievementRepository;
-    private final ProgressTrackingRepository progressTrackingRepository;
+    private final UserAchievementJdbcRepository userAchievementJdbcRepository;
+    private final ProgressSummaryService progressSummaryService;
+    private final AchievementRuleEngine achievementRuleEngine;
     private final NotificationService notificationService;
 
     public List<Achievement> getAllAchievements() {
@@ -46,19 +47,28 @@ public class AchievementService {
         return userAchievementRepository.findSharedAchievementsOrderBySharedAtDesc();
     }
 
-    // Kiểm tra và trao huy hiệu cho user dựa trên tiến trình
+    // Kiểm tra và trao huy hiệu cho user dựa trên tiến trình:
+    // đọc bảng tổng hợp + danh sách huy hiệu đã có, ghi các huy hiệu mới trong một batch
     public void checkAndAwardAchievements(Long userId) {
-        User user = new User();
-        user.setId(userId);
+        AchievementRuleEngine.Catalog catalog = achievementRuleEngine.catalog();
+        if (catalog.size() == 0) {
+            return;
+        }
+
+        AchievementRuleEngine.Metrics metrics =
+            AchievementRuleEngine.Metrics.of(progressSummaryService.getSummary(userId));
+        BitSet earned = catalog.earnedSet(userAchievementRepository.findAchievementIdsByUserId(userId));
 
-        // Kiểm tra huy hiệu theo số ngày không hút thuốc
-        checkDaysSmokeFreeAchievements(user);
+        List<Achievement> newlyEarned = catalog.newlyEarned(metrics, earned);
+        if (newlyEarned.isEmpty()) {
+            return;
+        }
 
-        // Kiểm tra huy hiệu theo tiền tiết kiệm
-        checkMoneySavedAchievements(user);
+        Map<Long, List<Achievement>> inserted =
+            userAchievementJdbcRepository.batchInsert(Map.of(userId, newlyEarned), LocalDateTime.now());
 
-        // Kiểm tra huy hiệu theo chuỗi ngày liên tiếp
-        checkStreakAchievements(user);
+        // Gửi thông báo cho user
+        notificationService.sendAchievementNotifications(inserted);
     }
 
     @Autowired
@@ -201,67 +211,6 @@ public class AchievementService {
         notificationService.sendAchievementNotification(user.getId(), achievement);
     }
 
-    private void checkDaysSmokeFreeAchievements(User user) {
-        Integer maxStreak = progressTrackingRepository.findMaxStreakByUserId(user.getId()).orElse(0);
-
-        List<Achievement> daysAchievements = achievementRepository.findByTypeOrderByTargetValueAsc(
-            Achievement.AchievementType.DAYS_SMOKE_FREE);
-
-        for (Achievement achievement : daysAchievements) {
-            if (maxStreak >= achievement.getTargetValue() &&
-                !userAchievementRepository.existsByUserAndAchievement(user, achievement)) {
-
-                awardAchievement(user, achievement);
-            }
-        }
-    }
-
-    private void checkMoneySavedAchievements(User user) {
-        Double totalMoneySaved = progressTrackingRepository.getTotalMoneySavedByUserId(user.getId()).orElse(0.0);
-
-        List<Achievement> moneyAchievements = achievementRepository.findByType(Achievement.AchievementType.MONEY_SAVED);
-
-        for (Achievement achievement : moneyAchievements) {
-            if (achievement.getTargetMoney() != null &&
-                BigDecimal.valueOf(totalMoneySaved).compareTo(achievement.getTargetMoney()) >= 0 &&
-                !userAchievementRepository.existsByUserAndAchievement(user, achievement)) {
-
-                awardAchievement(user, achievement);
-            }
-        }
-    }
-
-    private void checkStreakAchievements(User user) {
-        // Lấy tiến trình mới nhất để kiểm tra chuỗi hiện tại
-        List<ProgressTracking> recentProgress = progressTrackingRepository.findByUserIdOrderByTrackingDateDesc(user.getId());
-
-        if (!recentProgress.isEmpty()) {
-            Integer currentStreak = recentProgress.get(0).getCurrentStreak();
-
-            List<Achievement> streakAchievements = achievementRepository.findByType(Achievement.AchievementType.STREAK);
-
-            for (Achievement achievement : streakAchievements) {
-                if (currentStreak >= achievement.getTargetValue() &&
-                    !userAchievementRepository.existsByUserAndAchievement(user, achievement)) {
-
-                    awardAchievement(user, achievement);
-                }
-            }
-        }
-    }
-
-    private void awardAchievement(User user, Achievement achievement) {
-        UserAchievement userAchievement = new UserAchievement();
-        userAchievement.setUser(user);
-        userAchievement.setAchievement(achievement);
-        userAchievement.setEarnedAt(LocalDateTime.now());
-
-        userAchievementRepository.save(userAchievement);
-
-        // Gửi thông báo cho user
-        notificationService.sendAchievementNotification(user.getId(), achievement);
-    }
-
     public UserAchievement shareAchievement(Long userAchievementId) {
         UserAchievement userAchievement = userAchievementRepository.findById(userAchievementId)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy huy hiệu"));
@@ -273,15 +222,20 @@ public class AchievementService {
     }
 
     public Achievement createAchievement(Achievement achievement) {
-        return achievementRepository.save(achievement);
+        Achievement saved = achievementRepository.save(achievement);
+        achievementRuleEngine.reload();
+        return saved;
     }
 
     public Achievement updateAchievement(Achievement achievement) {
-        return achievementRepository.save(achievement);
+        Achievement saved = achievementRepository.save(achievement);
+        achievementRuleEngine.reload();
+        return saved;
     }
 
     public void deleteAchievement(Long achievementId) {
         achievementRepository.deleteById(achievementId);
+        achievementRuleEngine.reload();
     }
 
     public Long getUserAchievementCount(Long userId) {
@@ -1,10 +1,17 @@
 package com.smokingcessation.platform.service;
 
 import com.smokingcessation.platform.entity.User;
+import com.smokingcessation.platform.security.LoginAttemptService;
+import com.smokingcessation.platform.security.SecurityStampService;
+import com.smokingcessation.platform.security.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import com.smokingcessation.platform.security.UserDetailsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Service
@@ -14,12 +21,25 @@ public class AuthService {
     private final UserService userService;
     private final PasswordService passwordService;
     private final JwtService jwtService;
+    private final UserDetailsCache userDetailsCache;
+    private final LoginAttemptService loginAttemptService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final SecurityStampService securityStampService;
 
     @Autowired
-    public AuthService(UserService userService, PasswordService passwordService, JwtService jwtService) {
+    public AuthService(UserService userService, PasswordService passwordService, JwtService jwtService,
+                       UserDetailsCache userDetailsCache, LoginAttemptService loginAttemptService,
+                       TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService,
+                       SecurityStampService securityStampService) {
         this.userService = userService;
         this.passwordService = passwordService;
         this.jwtService = jwtService;
+        this.userDetailsCache = userDetailsCache;
+        this.loginAttemptService = loginAttemptService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.securityStampService = securityStampService;
     }
 
     // ========== Authentication Operations ==========
@@ -27,13 +47,29 @@ public class AuthService {
     /**
      * Authenticate user with username/email and password
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthenticationResult authenticate(String usernameOrEmail, String password) {
+        return authenticate(usernameOrEmail, password, null);
+    }
+
+    /**
+     * Authenticate user, tracking failures per username/email and per client IP.
+     * Runs outside a transaction: BCrypt must not hold a pooled connection while it waits,
+     * the writes after a successful check open their own short transactions.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthenticationResult authenticate(String usernameOrEmail, String password, String clientIp) {
+        // Lockout decision is made in memory, before any database or BCrypt work
+        if (loginAttemptService.isBlocked(usernameOrEmail, clientIp)) {
+            return AuthenticationResult.failure("Account is temporarily locked due to multiple failed login attempts");
+        }
+
         // Find user by username or email
         Optional<User> userOpt = userService.findByUsernameOrEmail(usernameOrEmail);
 
         if (userOpt.isEmpty()) {
             // Record failed attempt even for non-existent users (security)
-            userService.recordFailedLoginAttempt(usernameOrEmail);
+            loginAttemptService.recordFailure(usernameOrEmail, clientIp);
             return AuthenticationResult.failure("Invalid credentials");
         }
 
@@ -44,24 +80,31 @@ public class AuthService {
             return AuthenticationResult.failure("Account is deactivated");
         }
 
-        // Check if account is locked
-        if (userService.isAccountLocked(user.getId())) {
+        // Check if account is locked (lock persisted by an earlier flush)
+        if (user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(LocalDateTime.now())) {
             return AuthenticationResult.failure("Account is temporarily locked due to multiple failed login attempts");
         }
 
         // Verify password
         if (!passwordService.verifyPassword(password, user.getPasswordHash())) {
-            userService.recordFailedLoginAttempt(usernameOrEmail);
+            loginAttemptService.recordFailure(usernameOrEmail, clientIp);
             return AuthenticationResult.failure("Invalid credentials");
         }
 
+        // Cost parameter changed since this hash was created -> re-hash transparently
+        if (passwordService.needsRehash(user.getPasswordHash())) {
+            userService.updatePasswordHash(user.getId(), passwordService.encodePassword(password));
+        }
+
         // Successful authentication
+        loginAttemptService.recordSuccess(usernameOrEmail);
         userService.recordSuccessfulLogin(user.getId());
 
-        // Generate JWT token
+        // Generate short-lived JWT plus a refresh token starting a new family
         String token = jwtService.generateToken(user.getUsername(), user.getId(), user.getRole().name());
+        String refreshToken = refreshTokenService.issue(user.getId()).getToken();
 
-        return AuthenticationResult.success(user, token);
+        return AuthenticationResult.success(user, token, refreshToken);
     }
 
     /**
@@ -75,8 +118,9 @@ public class AuthService {
 
             // Generate JWT token for immediate login
             String token = jwtService.generateToken(user.getUsername(), user.getId(), user.getRole().name());
+            String refreshToken = refreshTokenService.issue(user.getId()).getToken();
 
-            return AuthenticationResult.success(user, token);
+            return AuthenticationResult.success(user, token, refreshToken);
 
         } catch (IllegalArgumentException e) {
             return AuthenticationResult.failure(e.getMessage());
@@ -84,36 +128,57 @@ public class AuthService {
     }
 
     /**
-     * Refresh JWT token
+     * Exchange a refresh token for a new access token and a rotated refresh token
      */
-    public AuthenticationResult refreshToken(String token) {
+    public AuthenticationResult refreshToken(String refreshToken) {
         try {
-            // Validate current token
-            if (!jwtService.validateToken(token)) {
-                return AuthenticationResult.failure("Invalid or expired token");
+            // Rotate refresh token; reuse of an already rotated token revokes its family
+            Optional<RefreshTokenService.IssuedToken> rotated = refreshTokenService.rotate(refreshToken);
+            if (rotated.isEmpty()) {
+                return AuthenticationResult.failure("Invalid or expired refresh token");
             }
 
-            // Extract user information
-            String username = jwtService.extractUsername(token);
-            Long userId = jwtService.extractUserId(token);
-            String role = jwtService.extractUserRole(token);
-
             // Verify user still exists and is active
-            Optional<User> userOpt = userService.findByUsername(username);
+            Optional<User> userOpt = userService.findById(rotated.get().getUserId());
             if (userOpt.isEmpty() || !userOpt.get().getIsActive()) {
+                refreshTokenService.revokeAllForUser(rotated.get().getUserId());
                 return AuthenticationResult.failure("User no longer exists or is inactive");
             }
 
-            // Generate new token
-            String newToken = jwtService.generateToken(username, userId, role);
+            // Generate new access token with current role and security stamp
+            User user = userOpt.get();
+            String newToken = jwtService.generateToken(user.getUsername(), user.getId(), user.getRole().name());
 
-            return AuthenticationResult.success(userOpt.get(), newToken);
+            return AuthenticationResult.success(user, newToken, rotated.get().getToken());
 
         } catch (Exception e) {
             return AuthenticationResult.failure("Token refresh failed");
         }
     }
 
+    /**
+     * Logout: revoke the token until it expires
+     */
+    public AuthenticationResult logout(String token) {
+        return logout(token, null);
+    }
+
+    /**
+     * Logout: revoke the access token and the refresh token family of this session
+     */
+    public AuthenticationResult logout(String token, String refreshToken) {
+        Claims claims = token != null ? jwtService.resolveClaims(token) : null;
+        if (claims == null) {
+            return AuthenticationResult.failure("Invalid or expired token");
+        }
+
+        tokenRevocationService.revoke(claims.getId(), claims.get("userId", Long.class), claims.getExpiration());
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+        return AuthenticationResult.success("Logout successful");
+    }
+
     /**
      * Validate token and get user information
      */
@@ -133,16 +198,28 @@ public class AuthService {
     }
 
     /**
-     * Change user password
+     * Change user password. Both BCrypt steps run before any transaction is opened;
+     * only the hash write (which also evicts the cached UserDetails) is transactional.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthenticationResult changePassword(Long userId, String currentPassword, String newPassword) {
-        try {
-            userService.updatePassword(userId, currentPassword, newPassword);
-            return AuthenticationResult.success("Password changed successfully");
-
-        } catch (IllegalArgumentException e) {
-            return AuthenticationResult.failure(e.getMessage());
+        Optional<User> userOpt = userService.findById(userId);
+        if (userOpt.isEmpty()) {
+            return AuthenticationResult.failure("User not found");
+        }
+        if (!passwordService.verifyPassword(currentPassword, userOpt.get().getPassword())) {
+            return AuthenticationResult.failure("Current password is incorrect");
         }
+        if (!passwordService.isValidPassword(newPassword)) {
+            return AuthenticationResult.failure(passwordService.getPasswordRequirements());
+        }
+
+        userService.updatePasswordHash(userId, passwordService.encodePassword(newPassword));
+        // Access tokens issued with the old password stop authenticating,
+        // sessions opened with it cannot be extended
+        securityStampService.rotate(userId);
+        refreshTokenService.revokeAllForUser(userId);
+        return AuthenticationResult.success("Password changed successfully");
     }
 
     /**
@@ -166,7 +243,7 @@ public class AuthService {
      */
     @Transactional(readOnly = true)
     public boolean isUsernameAvailable(String username) {
-        return userService.findByUsername(username).isEmpty();
+        return !userService.existsByUsername(username);
     }
 
     /**
@@ -174,7 +251,7 @@ public class AuthService {
      */
     @Transactional(readOnly = true)
     public boolean isEmailAvailable(String email) {
-        return userService.findByEmail(email).isEmpty();
+        return !userService.existsByEmail(email);
     }
 
     // ========== Authentication Result Class ==========
@@ -187,24 +264,30 @@ public class AuthService {
         private final String message;
         private final User user;
         private final String token;
+        private final String refreshToken;
 
-        private AuthenticationResult(boolean success, String message, User user, String token) {
+        private AuthenticationResult(boolean success, String message, User user, String token, String refreshToken) {
             this.success = success;
             this.message = message;
             this.user = user;
             this.token = token;
+            this.refreshToken = refreshToken;
         }
 
         public static AuthenticationResult success(User user, String token) {
-            return new AuthenticationResult(true, "Authentication successful", user, token);
+            return new AuthenticationResult(true, "Authentication successful", user, token, null);
+        }
+
+        public static AuthenticationResult success(User user, String token, String refreshToken) {
+            return new AuthenticationResult(true, "Authentication successful", user, token, refreshToken);
         }
 
         public static AuthenticationResult success(String message) {
-            return new AuthenticationResult(true, message, null, null);
+            return new AuthenticationResult(true, message, null, null, null);
         }
 
         public static AuthenticationResult failure(String message) {
-            return new AuthenticationResult(false, message, null, null);
+            return new AuthenticationResult(false, message, null, null, null);
         }
 
         // Getters
@@ -212,5 +295,6 @@ public class AuthService {
         public String getMessage() { return message; }
         public User getUser() { return user; }
         public String getToken() { return token; }
+        public String getRefreshToken() { return refreshToken; }
     }
 }
\ No newline at end of file
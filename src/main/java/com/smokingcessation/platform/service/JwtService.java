@@ -1,17 +1,33 @@
 package com.smokingcessation.platform.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.smokingcessation.platform.security.SecurityStampService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
@@ -23,13 +39,73 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long jwtExpiration;
 
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
     private static final String TOKEN_PREFIX = "Bearer ";
 
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final MeterRegistry meterRegistry;
+    private final SecurityStampService securityStampService;
+
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // Verified claims keyed by token digest, each entry expires together with its token
+    private Cache<String, Claims> claimsCache;
+
+    public JwtService(MeterRegistry meterRegistry, SecurityStampService securityStampService) {
+        this.meterRegistry = meterRegistry;
+        this.securityStampService = securityStampService;
+    }
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, claims, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, claimsCache, "jwt.claims");
+        Gauge.builder("jwt.claims.cache.hit.ratio", claimsCache, cache -> cache.stats().hitRate())
+                .description("Ratio of token lookups served without signature verification")
+                .register(meterRegistry);
+    }
+
     /**
-     * Generate secret key from JWT secret string
+     * Get secret key built once from JWT secret string
      */
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     /**
@@ -69,14 +145,35 @@ public class JwtService {
     }
 
     /**
-     * Extract all claims from JWT token
+     * Extract all claims from JWT token.
+     * Verified claims are cached by token digest until the token expires,
+     * so repeated calls for the same token skip signature verification.
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public Claims extractAllClaims(String token) {
+        String key = digest(token);
+
+        Claims cached = claimsCache.getIfPresent(key);
+        if (cached != null && !isExpired(cached)) {
+            return cached;
+        }
+
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            claimsCache.put(key, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Parse and verify token once, returning null if it is invalid or expired
+     */
+    public Claims resolveClaims(String token) {
+        try {
+            Claims claims = extractAllClaims(token);
+            return isExpired(claims) ? null : claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -86,6 +183,21 @@ public class JwtService {
         return extractExpiration(token).before(new Date());
     }
 
+    private boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+
+    /**
+     * SHA-256 digest of token, used as cache key so raw tokens are never kept in memory
+     */
+    private String digest(String token) {
+        MessageDigest messageDigest = SHA_256.get();
+        messageDigest.reset();
+        byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
     /**
      * Generate JWT token for user
      */
@@ -94,6 +206,7 @@ public class JwtService {
         claims.put("userId", userId);
         claims.put("role", role);
         claims.put("tokenType", "ACCESS");
+        claims.put(SecurityStampService.STAMP_CLAIM, securityStampService.currentStamp(userId));
 
         return createToken(claims, username);
     }
@@ -114,6 +227,7 @@ public class JwtService {
 
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
@@ -125,8 +239,15 @@ public class JwtService {
      * Validate JWT token against user details
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(extractAllClaims(token), userDetails);
+    }
+
+    /**
+     * Validate already parsed claims against user details
+     */
+    public Boolean validateToken(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username != null && username.equals(userDetails.getUsername()) && !isExpired(claims));
     }
 
     /**
@@ -3,13 +3,16 @@ package com.smokingcessation.platform.service;
 import com.smokingcessation.platform.entity.Notification;
 import com.smokingcessation.platform.entity.User;
 import com.smokingcessation.platform.entity.Achievement;
+import com.smokingcessation.platform.repository.NotificationJdbcRepository;
 import com.smokingcessation.platform.repository.NotificationRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Arrays;
 
 @Service
@@ -18,6 +21,7 @@ import java.util.Arrays;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final NotificationJdbcRepository notificationJdbcRepository;
 
     // Các thông điệp động viên mẫu
     private final List<String> motivationMessages = Arrays.asList(
@@ -62,6 +66,18 @@ public class NotificationService {
 
     // Gửi thông báo huy hiệu
     public void sendAchievementNotification(Long userId, Achievement achievement) {
+        notificationRepository.save(achievementNotification(userId, achievement));
+    }
+
+    // Gửi thông báo huy hiệu cho nhiều user/huy hiệu trong một batch
+    public void sendAchievementNotifications(Map<Long, List<Achievement>> awards) {
+        List<Notification> notifications = new ArrayList<>();
+        awards.forEach((userId, achievements) ->
+            achievements.forEach(achievement -> notifications.add(achievementNotification(userId, achievement))));
+        notificationJdbcRepository.batchInsert(notifications);
+    }
+
+    private Notification achievementNotification(Long userId, Achievement achievement) {
         User user = new User();
         user.setId(userId);
 
@@ -73,8 +89,7 @@ public class NotificationService {
         notification.setType(Notification.NotificationType.ACHIEVEMENT);
         notification.setFrequency(Notification.NotificationFrequency.ONCE);
         notification.setSentAt(LocalDateTime.now());
-
-        notificationRepository.save(notification);
+        return notification;
     }
 
     // Tạo thông báo động viên hàng ngày
@@ -1,10 +1,24 @@
 package com.smokingcessation.platform.service;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
@@ -12,6 +26,14 @@ public class PasswordService {
 
     private final PasswordEncoder passwordEncoder;
     private final SecureRandom secureRandom;
+    private final int bcryptStrength;
+    private final ThreadPoolTaskExecutor hashingExecutor;
+    private final Duration hashTimeout;
+    private final Timer encodeTimer;
+    private final Timer verifyTimer;
+
+    // BCrypt hash format: $2a$12$<53 chars>, group 1 is the cost parameter
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$.{53}$");
 
     // Password validation patterns
     private static final Pattern PASSWORD_PATTERN = Pattern.compile(
@@ -25,29 +47,94 @@ public class PasswordService {
             "^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*[@$!%*?&]).{8,}$"
     );
 
-    public PasswordService() {
-        this.passwordEncoder = new BCryptPasswordEncoder(12); // Strength 12
+    public PasswordService(@Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor hashingExecutor,
+                           MeterRegistry meterRegistry,
+                           @Value("${security.password.bcrypt-strength:12}") int bcryptStrength,
+                           @Value("${security.password.hash-timeout:5s}") Duration hashTimeout) {
+        this.passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
         this.secureRandom = new SecureRandom();
+        this.bcryptStrength = bcryptStrength;
+        this.hashingExecutor = hashingExecutor;
+        this.hashTimeout = hashTimeout;
+
+        this.encodeTimer = Timer.builder("password.hash.duration")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("password.hash.duration")
+                .tag("operation", "verify")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", hashingExecutor,
+                        exec -> exec.getThreadPoolExecutor().getQueue().size())
+                .description("BCrypt tasks waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", hashingExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
     }
 
     /**
-     * Encode password using BCrypt
+     * Encode password using BCrypt on the hashing executor
      */
     public String encodePassword(String rawPassword) {
         if (rawPassword == null || rawPassword.trim().isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty");
         }
-        return passwordEncoder.encode(rawPassword);
+        return runOnHashingExecutor(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
     }
 
     /**
-     * Verify password against encoded password
+     * Verify password against encoded password on the hashing executor
      */
     public boolean verifyPassword(String rawPassword, String encodedPassword) {
         if (rawPassword == null || encodedPassword == null) {
             return false;
         }
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return runOnHashingExecutor(() -> verifyTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Check whether a stored hash was produced with a different BCrypt cost than the configured one
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.matches() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    /**
+     * Run a BCrypt task on the bounded executor and wait for its result.
+     * Fails fast with HashingUnavailableException when the queue is full.
+     */
+    private <T> T runOnHashingExecutor(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = hashingExecutor.submit(task);
+        } catch (TaskRejectedException e) {
+            throw new HashingUnavailableException("Password hashing is saturated, retry later", retryAfterSeconds());
+        }
+
+        try {
+            return future.get(hashTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingUnavailableException("Password hashing timed out, retry later", retryAfterSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, hashTimeout.toSeconds());
     }
 
     /**
@@ -160,6 +247,20 @@ public class PasswordService {
         return false;
     }
 
+    /**
+     * Thrown when the hashing executor cannot accept more work; mapped to 503 + Retry-After
+     */
+    public static class HashingUnavailableException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public HashingUnavailableException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() { return retryAfterSeconds; }
+    }
+
     /**
      * Password strength enumeration
      */
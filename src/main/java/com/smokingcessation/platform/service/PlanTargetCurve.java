@@ -0,0 +1,98 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.entity.PlanMilestone;
+
+import java.util.List;
+
+/**
+ * Daily cigarette target of a quit plan as a step function of the day offset from the plan start.
+ * <p>
+ * A day takes the target of the first milestone (by step) whose dayOffset is not before it;
+ * days past the last milestone keep its target. Prefix sums at the milestone offsets let
+ * {@link #sumTargets(long, long)} answer any range with one binary search per end.
+ */
+public final class PlanTargetCurve {
+
+    static final PlanTargetCurve EMPTY = new PlanTargetCurve(new int[0], new int[0]);
+
+    private final int[] offsets;  // dayOffset của các mốc, không giảm
+    private final int[] targets;  // target của các mốc
+    private final long[] prefix;  // prefix[i] = S(offsets[i]), với S(offsets[0]) = 0
+
+    private PlanTargetCurve(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.prefix = new long[offsets.length];
+        for (int i = 1; i < offsets.length; i++) {
+            prefix[i] = prefix[i - 1] + (long) (offsets[i] - offsets[i - 1]) * targets[i];
+        }
+    }
+
+    /**
+     * @param milestones ordered by stepIndex
+     */
+    public static PlanTargetCurve of(List<PlanMilestone> milestones) {
+        if (milestones.isEmpty()) {
+            return EMPTY;
+        }
+        int[] offsets = new int[milestones.size()];
+        int[] targets = new int[milestones.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            PlanMilestone milestone = milestones.get(i);
+            // Mốc có offset nhỏ hơn mốc trước không bao giờ được chọn khi quét theo thứ tự step
+            offsets[i] = i == 0 ? milestone.getDayOffset() : Math.max(milestone.getDayOffset(), offsets[i - 1]);
+            targets[i] = milestone.getTargetCigarettes();
+        }
+        return new PlanTargetCurve(offsets, targets);
+    }
+
+    public int targetFor(long dayOffset) {
+        if (offsets.length == 0) {
+            return 0;
+        }
+        int i = lowerBound(dayOffset);
+        return targets[i == offsets.length ? offsets.length - 1 : i];
+    }
+
+    /**
+     * Total target of every day in {@code [fromOffset, toOffset]}, 0 when the range is empty
+     */
+    public long sumTargets(long fromOffset, long toOffset) {
+        if (offsets.length == 0 || toOffset < fromOffset) {
+            return 0;
+        }
+        return cumulative(toOffset) - cumulative(fromOffset - 1);
+    }
+
+    /**
+     * S(d), defined up to a constant so that S(d) - S(d - 1) = targetFor(d)
+     */
+    private long cumulative(long dayOffset) {
+        int last = offsets.length - 1;
+        if (dayOffset <= offsets[0]) {
+            return (dayOffset - offsets[0]) * targets[0];
+        }
+        if (dayOffset > offsets[last]) {
+            return prefix[last] + (dayOffset - offsets[last]) * targets[last];
+        }
+        int i = lowerBound(dayOffset); // offsets[i - 1] < dayOffset <= offsets[i]
+        return prefix[i - 1] + (dayOffset - offsets[i - 1]) * targets[i];
+    }
+
+    /**
+     * First index with {@code offsets[i] >= dayOffset}, or offsets.length
+     */
+    private int lowerBound(long dayOffset) {
+        int low = 0;
+        int high = offsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] < dayOffset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
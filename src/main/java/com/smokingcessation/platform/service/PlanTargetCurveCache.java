@@ -0,0 +1,57 @@
+package com.smokingcessation.platform.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smokingcessation.platform.repository.PlanMilestoneRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Compiled target curve per quit plan. Every write to a plan's milestones must call
+ * {@link #invalidate(Long)}.
+ */
+@Component
+public class PlanTargetCurveCache {
+
+    private final PlanMilestoneRepository milestoneRepository;
+    private final Cache<Long, PlanTargetCurve> curves;
+
+    public PlanTargetCurveCache(PlanMilestoneRepository milestoneRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${quit-plan.target-curve-cache.max-size:10000}") long maxSize,
+                                @Value("${quit-plan.target-curve-cache.ttl:1h}") Duration ttl) {
+        this.milestoneRepository = milestoneRepository;
+        this.curves = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, curves, "quit.plan.target.curve");
+    }
+
+    public PlanTargetCurve get(Long planId) {
+        return curves.get(planId, id -> PlanTargetCurve.of(milestoneRepository.findByQuitPlanIdOrderByStepIndex(id)));
+    }
+
+    /**
+     * Evict now and again after the surrounding transaction commits
+     */
+    public void invalidate(Long planId) {
+        curves.invalidate(planId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    curves.invalidate(planId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.smokingcessation.platform.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Full-history exports written row by row as the result set is read.
+ * Queries are forward-only with a fixed fetch size, so memory does not grow with the
+ * number of rows. A failed write (client closed the download) cancels the statement.
+ * <p>
+ * An export holds a pooled connection and an open result set for as long as the client takes
+ * to download, so at most {@code export.max-concurrent} run at once; callers take an
+ * {@link ExportSlot} first and answer 503 when none is free.
+ */
+@Service
+@Slf4j
+public class ProgressExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String PROGRESS_SQL =
+        "SELECT tracking_date, cigarettes_smoked, money_saved, current_streak, days_smoke_free, health_status, " +
+        "mood_score, craving_intensity, exercise_minutes, sleep_hours, notes, created_at " +
+        "FROM progress_tracking WHERE user_id = ? ORDER BY tracking_date";
+
+    private static final String PLAN_PROGRESS_SQL =
+        "SELECT up.quit_plan_id, qp.start_date AS plan_start_date, up.log_date, up.smoked, up.note " +
+        "FROM user_progress up JOIN quit_plan qp ON qp.id = up.quit_plan_id " +
+        "WHERE qp.user_id = ? ORDER BY up.quit_plan_id, up.log_date";
+
+    private static final String SMOKING_STATUS_SQL =
+        "SELECT created_at, updated_at, cigarettes_per_day, smoking_frequency, cigarette_price, brand_name, " +
+        "years_smoking, attempts_to_quit, triggers, motivationLevel AS motivation_level " +
+        "FROM smoking_status WHERE user_id = ? ORDER BY created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Semaphore slots;
+
+    public ProgressExportService(DataSource dataSource,
+                                 @Value("${export.fetch-size:500}") int fetchSize,
+                                 @Value("${export.max-concurrent:2}") int maxConcurrent) {
+        // JdbcTemplate riêng để fetch size không ảnh hưởng các truy vấn khác
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.slots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Reserve one of the export slots, empty when all are in use.
+     * The slot must be closed once the export has finished or failed.
+     */
+    public Optional<ExportSlot> tryAcquireSlot() {
+        return slots.tryAcquire() ? Optional.of(new ExportSlot()) : Optional.empty();
+    }
+
+    public void exportProgress(Long userId, Format format, OutputStream out) throws IOException {
+        export(PROGRESS_SQL, userId, format, out);
+    }
+
+    public void exportPlanProgress(Long userId, Format format, OutputStream out) throws IOException {
+        export(PLAN_PROGRESS_SQL, userId, format, out);
+    }
+
+    public void exportSmokingStatus(Long userId, Format format, OutputStream out) throws IOException {
+        export(SMOKING_STATUS_SQL, userId, format, out);
+    }
+
+    private void export(String sql, Long userId, Format format, OutputStream out) throws IOException {
+        try {
+            jdbcTemplate.execute((PreparedStatementCreator) con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setLong(1, userId);
+                return ps;
+            }, (PreparedStatementCallback<Void>) ps -> {
+                try (ResultSet rs = ps.executeQuery()) {
+                    RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+                    writer.start(rs.getMetaData());
+                    while (rs.next()) {
+                        writer.write(rs);
+                    }
+                    writer.finish();
+                } catch (IOException e) {
+                    // Client đã ngắt kết nối: dừng truy vấn thay vì đọc hết kết quả
+                    cancelQuietly(ps);
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            log.debug("Export for user {} aborted: {}", userId, e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private void cancelQuietly(PreparedStatement ps) {
+        try {
+            ps.cancel();
+        } catch (SQLException e) {
+            log.debug("Could not cancel export query: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * JDBC value in the form written to the export (ISO dates and timestamps)
+     */
+    private static Object exportValue(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        }
+        return value;
+    }
+
+    /**
+     * One reserved export; closing it more than once releases the slot only once
+     */
+    public final class ExportSlot implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ExportSlot() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+
+    private interface RowWriter {
+        void start(ResultSetMetaData metaData) throws SQLException, IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+        private int columns;
+
+        private CsvWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+            columns = metaData.getColumnCount();
+            writer.write('\uFEFF'); // BOM để Excel đọc đúng tiếng Việt
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(metaData.getColumnLabel(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = exportValue(rs.getObject(i));
+                if (value instanceof BigDecimal decimal) {
+                    writer.write(decimal.toPlainString());
+                } else if (value instanceof Number number) {
+                    writer.write(number.toString());
+                } else if (value != null) {
+                    writer.write(escape(neutralizeFormula(value.toString())));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        /**
+         * Text starting with = + - @ (or tab / CR) would be run as a formula when the file is
+         * opened in Excel; a leading ' makes it plain text. Numbers are written as numbers.
+         */
+        private String neutralizeFormula(String value) {
+            if (value.isEmpty()) {
+                return value;
+            }
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+                return "'" + value;
+            }
+            return value;
+        }
+
+        private String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private String[] labels;
+
+        private NdjsonWriter(OutputStream out) throws IOException {
+            this.generator = jsonFactory.createGenerator(out);
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException {
+            labels = new String[metaData.getColumnCount()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+            }
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < labels.length; i++) {
+                Object value = exportValue(rs.getObject(i + 1));
+                generator.writeFieldName(labels[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.toString());
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.smokingcessation.platform.service;
+
+import java.time.Instant;
+
+/**
+ * Published by ProgressTrackingService inside the write transaction
+ */
+public record ProgressRecordedEvent(Long userId, Instant occurredAt) {
+
+    public ProgressRecordedEvent(Long userId) {
+        this(userId, Instant.now());
+    }
+}
@@ -0,0 +1,166 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.repository.ProgressTrackingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated progress for charts. Day and month buckets are grouped by the database;
+ * ISO weeks (Monday start) are folded from the day aggregates because week-of-year
+ * numbering differs between databases around the new year.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ProgressRollupService {
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private final ProgressTrackingRepository progressTrackingRepository;
+
+    public List<RollupBucket> rollup(Long userId, Granularity granularity, LocalDate from, LocalDate to) {
+        if (granularity == Granularity.MONTH) {
+            List<RollupBucket> buckets = new ArrayList<>();
+            for (Object[] row : progressTrackingRepository.rollupByMonth(userId, from, to)) {
+                LocalDate periodStart = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), 1);
+                buckets.add(accumulate(new Accumulator(periodStart), row, 2).toBucket(periodStart.plusMonths(1).minusDays(1)));
+            }
+            return buckets;
+        }
+
+        List<Object[]> days = progressTrackingRepository.rollupByDay(userId, from, to);
+        if (granularity == Granularity.DAY) {
+            List<RollupBucket> buckets = new ArrayList<>(days.size());
+            for (Object[] row : days) {
+                LocalDate day = (LocalDate) row[0];
+                buckets.add(accumulate(new Accumulator(day), row, 1).toBucket(day));
+            }
+            return buckets;
+        }
+
+        // Rows are ordered by date, so weeks come out in order
+        Map<LocalDate, Accumulator> weeks = new LinkedHashMap<>();
+        for (Object[] row : days) {
+            LocalDate weekStart = ((LocalDate) row[0]).with(DayOfWeek.MONDAY);
+            accumulate(weeks.computeIfAbsent(weekStart, Accumulator::new), row, 1);
+        }
+        List<RollupBucket> buckets = new ArrayList<>(weeks.size());
+        weeks.values().forEach(week -> buckets.add(week.toBucket(week.periodStart.plusDays(6))));
+        return buckets;
+    }
+
+    /**
+     * Add one aggregate row (columns from {@code offset} as selected by the repository queries)
+     */
+    private Accumulator accumulate(Accumulator acc, Object[] row, int offset) {
+        acc.daysTracked += longValue(row[offset]);
+        acc.cigarettes += longValue(row[offset + 1]);
+        acc.moneySaved = acc.moneySaved.add(row[offset + 2] != null ? (BigDecimal) row[offset + 2] : BigDecimal.ZERO);
+        acc.smokeFreeDays += longValue(row[offset + 3]);
+        acc.moodSum += doubleValue(row[offset + 4]);
+        acc.moodCount += longValue(row[offset + 5]);
+        acc.cravingSum += doubleValue(row[offset + 6]);
+        acc.cravingCount += longValue(row[offset + 7]);
+        acc.sleepSum += doubleValue(row[offset + 8]);
+        acc.sleepCount += longValue(row[offset + 9]);
+        acc.exerciseSum += longValue(row[offset + 10]);
+        acc.exerciseCount += longValue(row[offset + 11]);
+        return acc;
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static double doubleValue(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0d;
+    }
+
+    private static Double average(double sum, long count) {
+        return count == 0 ? null : BigDecimal.valueOf(sum / count).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static final class Accumulator {
+        private final LocalDate periodStart;
+        private long daysTracked;
+        private long cigarettes;
+        private BigDecimal moneySaved = BigDecimal.ZERO;
+        private long smokeFreeDays;
+        private double moodSum;
+        private long moodCount;
+        private double cravingSum;
+        private long cravingCount;
+        private double sleepSum;
+        private long sleepCount;
+        private long exerciseSum;
+        private long exerciseCount;
+
+        private Accumulator(LocalDate periodStart) {
+            this.periodStart = periodStart;
+        }
+
+        private RollupBucket toBucket(LocalDate periodEnd) {
+            return new RollupBucket(periodStart, periodEnd, daysTracked, smokeFreeDays, cigarettes,
+                average(cigarettes, daysTracked), moneySaved, average(moodSum, moodCount),
+                average(cravingSum, cravingCount), average(sleepSum, sleepCount),
+                exerciseSum, average(exerciseSum, exerciseCount));
+        }
+    }
+
+    public static class RollupBucket {
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final long daysTracked;
+        private final long smokeFreeDays;
+        private final long totalCigarettes;
+        private final Double avgCigarettesPerDay;
+        private final BigDecimal totalMoneySaved;
+        private final Double avgMoodScore;
+        private final Double avgCravingIntensity;
+        private final Double avgSleepHours;
+        private final long totalExerciseMinutes;
+        private final Double avgExerciseMinutes;
+
+        public RollupBucket(LocalDate periodStart, LocalDate periodEnd, long daysTracked, long smokeFreeDays,
+                            long totalCigarettes, Double avgCigarettesPerDay, BigDecimal totalMoneySaved,
+                            Double avgMoodScore, Double avgCravingIntensity, Double avgSleepHours,
+                            long totalExerciseMinutes, Double avgExerciseMinutes) {
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.daysTracked = daysTracked;
+            this.smokeFreeDays = smokeFreeDays;
+            this.totalCigarettes = totalCigarettes;
+            this.avgCigarettesPerDay = avgCigarettesPerDay;
+            this.totalMoneySaved = totalMoneySaved;
+            this.avgMoodScore = avgMoodScore;
+            this.avgCravingIntensity = avgCravingIntensity;
+            this.avgSleepHours = avgSleepHours;
+            this.totalExerciseMinutes = totalExerciseMinutes;
+            this.avgExerciseMinutes = avgExerciseMinutes;
+        }
+
+        // Getters
+        public LocalDate getPeriodStart() { return periodStart; }
+        public LocalDate getPeriodEnd() { return periodEnd; }
+        public long getDaysTracked() { return daysTracked; }
+        public long getSmokeFreeDays() { return smokeFreeDays; }
+        public long getTotalCigarettes() { return totalCigarettes; }
+        public Double getAvgCigarettesPerDay() { return avgCigarettesPerDay; }
+        public BigDecimal getTotalMoneySaved() { return totalMoneySaved; }
+        public Double getAvgMoodScore() { return avgMoodScore; }
+        public Double getAvgCravingIntensity() { return avgCravingIntensity; }
+        public Double getAvgSleepHours() { return avgSleepHours; }
+        public long getTotalExerciseMinutes() { return totalExerciseMinutes; }
+        public Double getAvgExerciseMinutes() { return avgExerciseMinutes; }
+    }
+}
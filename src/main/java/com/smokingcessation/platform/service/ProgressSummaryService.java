@@ -0,0 +1,364 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.entity.ProgressTracking;
+import com.smokingcessation.platform.entity.UserProgressSummary;
+import com.smokingcessation.platform.repository.ProgressTrackingRepository;
+import com.smokingcessation.platform.repository.UserProgressSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Maintains user_progress_summary: streak state plus running totals of the user's progress rows.
+ * Appending a new day (or correcting the latest one) is O(1) from the stored state;
+ * a backfilled day recomputes only the rows after it, read with one ranged query.
+ * Totals are adjusted by the difference between the old and new version of the written row.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class ProgressSummaryService {
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final ProgressTrackingRepository progressTrackingRepository;
+    private final UserProgressSummaryRepository summaryRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Set currentStreak/daysSmokeFreePeak of the given row and update the user's summary.
+     * {@code before} is the row's contribution before this write, null for a new row.
+     * The row itself is saved by the caller; later rows changed by a recompute are managed
+     * entities and are flushed with the transaction.
+     */
+    public UserProgressSummary applyProgress(Long userId, ProgressTracking progress, Contribution before) {
+        UserProgressSummary summary = lockSummary(userId);
+        if (summary.getLastTrackingDate() == null) {
+            // Chưa có trạng thái: dựng lại từ toàn bộ lịch sử một lần
+            List<ProgressTracking> rows = recompute(summary, progress,
+                    progressTrackingRepository.findByUserIdOrderByTrackingDateAsc(userId), null);
+            setTotals(summary, rows);
+            return summaryRepository.save(summary);
+        }
+
+        LocalDate date = progress.getTrackingDate();
+        LocalDate last = summary.getLastTrackingDate();
+        if (last == null || date.isAfter(last)) {
+            // Ngày mới: nối tiếp chuỗi nếu liền kề ngày cuối
+            int carried = last != null && last.plusDays(1).equals(date) ? summary.getCurrentStreak() : 0;
+            int priorMax = summary.getMaxStreak();
+            setStreak(summary, progress, carried, priorMax);
+        } else if (date.isEqual(last)) {
+            // Sửa lại ngày cuối: dùng chuỗi mang sang đã lưu
+            setStreak(summary, progress, summary.getPriorStreak(), summary.getPriorMaxStreak());
+        } else {
+            // Ghi bù ngày cũ: chỉ tính lại phần phía sau
+            recompute(summary, progress, progressTrackingRepository.findFromDateWithPrevious(userId, date), date);
+        }
+
+        applyDelta(summary, before, Contribution.of(progress));
+        return summaryRepository.save(summary);
+    }
+
+    /**
+     * Batch variant of {@link #applyProgress}: entries have distinct dates and no id.
+     * Existing rows are read once (read-only, never flushed by JPA); an entry whose date already
+     * has a row takes over that row's id. Streaks are computed in one pass over the merged rows,
+     * the caller writes the returned rows with JDBC batches.
+     */
+    public BatchOutcome applyBatch(Long userId, List<ProgressTracking> entries) {
+        UserProgressSummary summary = lockSummary(userId);
+        boolean newSummary = summary.getLastTrackingDate() == null;
+
+        LocalDate first = entries.get(0).getTrackingDate();
+        LocalDate last = summary.getLastTrackingDate();
+        List<ProgressTracking> existingRows;
+        if (newSummary) {
+            existingRows = progressTrackingRepository.findReadOnlyByUserIdOrderByTrackingDateAsc(userId);
+        } else if (last == null || first.isAfter(last)) {
+            // Chỉ nối thêm ngày mới: không cần đọc dòng cũ
+            existingRows = List.of();
+        } else {
+            existingRows = progressTrackingRepository.findReadOnlyFromDateWithPrevious(userId, first);
+        }
+
+        // Ghép theo ngày: entry thay cho dòng cũ cùng ngày (giữ lại id để UPDATE)
+        TreeMap<LocalDate, ProgressTracking> byDate = new TreeMap<>();
+        for (ProgressTracking row : existingRows) {
+            byDate.putIfAbsent(row.getTrackingDate(), row);
+        }
+        Map<ProgressTracking, Contribution> before = new IdentityHashMap<>();
+        for (ProgressTracking entry : entries) {
+            ProgressTracking replaced = byDate.put(entry.getTrackingDate(), entry);
+            if (replaced != null) {
+                entry.setId(replaced.getId());
+                before.put(entry, Contribution.of(replaced));
+            }
+        }
+        List<ProgressTracking> ordered = new ArrayList<>(byDate.values());
+
+        // Streak cũ của các dòng không nằm trong batch, để chỉ ghi lại những dòng thay đổi
+        Map<ProgressTracking, int[]> previousStreaks = new IdentityHashMap<>();
+        for (ProgressTracking row : ordered) {
+            if (row.getId() != null && !before.containsKey(row)) {
+                previousStreaks.put(row, new int[]{valueOf(row.getCurrentStreak()), valueOf(row.getDaysSmokeFreePeak())});
+            }
+        }
+
+        if (newSummary || last == null) {
+            walk(summary, ordered, 0, null, 0, 0);
+        } else if (first.isAfter(last)) {
+            walk(summary, ordered, 0, last, summary.getCurrentStreak(), summary.getMaxStreak());
+        } else if (!ordered.isEmpty() && ordered.get(0).getTrackingDate().isBefore(first)) {
+            ProgressTracking seed = ordered.get(0);
+            walk(summary, ordered, 1, seed.getTrackingDate(), valueOf(seed.getCurrentStreak()),
+                    valueOf(seed.getDaysSmokeFreePeak()));
+        } else {
+            walk(summary, ordered, 0, null, 0, 0);
+        }
+
+        if (newSummary) {
+            setTotals(summary, ordered);
+        } else {
+            for (ProgressTracking entry : entries) {
+                applyDelta(summary, before.get(entry), Contribution.of(entry));
+            }
+        }
+        summaryRepository.save(summary);
+
+        BatchOutcome outcome = new BatchOutcome();
+        for (ProgressTracking entry : entries) {
+            (entry.getId() == null ? outcome.inserted : outcome.updated).add(entry);
+        }
+        previousStreaks.forEach((row, streaks) -> {
+            if (streaks[0] != valueOf(row.getCurrentStreak()) || streaks[1] != valueOf(row.getDaysSmokeFreePeak())) {
+                outcome.streakChanged.add(row);
+            }
+        });
+        return outcome;
+    }
+
+    /**
+     * Create the user's summary row if it does not exist yet and lock it until the transaction ends.
+     * Progress writes call this before touching progress_tracking, so every path takes the locks
+     * in the same order (summary, then the day's row) and concurrent first writes cannot both insert.
+     * A row without lastTrackingDate has no state yet and is built from the full history.
+     */
+    public UserProgressSummary lockSummary(Long userId) {
+        summaryRepository.lockOrCreate(userId);
+        return summaryRepository.findForUpdate(userId)
+                .orElseThrow(() -> new IllegalStateException("Progress summary missing for user " + userId));
+    }
+
+    /**
+     * Summary for the stats endpoint: one primary-key read, built from history on first access
+     */
+    public UserProgressSummary getSummary(Long userId) {
+        return summaryRepository.findById(userId).orElseGet(() -> rebuild(userId));
+    }
+
+    /**
+     * Recompute streaks and totals of one user from the full history
+     */
+    public UserProgressSummary rebuild(Long userId) {
+        UserProgressSummary existing = summaryRepository.findForUpdate(userId).orElse(null);
+        UserProgressSummary summary = existing != null ? existing : newSummary(userId);
+        List<ProgressTracking> rows = recompute(summary, null,
+                progressTrackingRepository.findByUserIdOrderByTrackingDateAsc(userId), null);
+        if (rows.isEmpty() && existing == null) {
+            // Không có dữ liệu: không cần ghi dòng rỗng
+            return summary;
+        }
+        setTotals(summary, rows);
+        return summaryRepository.save(summary);
+    }
+
+    /**
+     * Rebuild every user that has progress rows, one short transaction per user
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int rebuildAll() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int rebuilt = 0;
+        long afterUserId = 0;
+        while (true) {
+            List<Long> userIds = progressTrackingRepository.findUserIdsAfter(afterUserId,
+                    PageRequest.of(0, REBUILD_PAGE_SIZE));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            for (Long userId : userIds) {
+                transactionTemplate.executeWithoutResult(status -> rebuild(userId));
+                rebuilt++;
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+        log.info("Rebuilt progress summary of {} users", rebuilt);
+        return rebuilt;
+    }
+
+    private UserProgressSummary newSummary(Long userId) {
+        UserProgressSummary summary = new UserProgressSummary();
+        summary.setUserId(userId);
+        return summary;
+    }
+
+    private void setStreak(UserProgressSummary summary, ProgressTracking progress, int carried, int priorMax) {
+        int streak = isSmokeFree(progress) ? carried + 1 : 0;
+        int peak = Math.max(priorMax, streak);
+        progress.setCurrentStreak(streak);
+        progress.setDaysSmokeFreePeak(peak);
+
+        summary.setLastTrackingDate(progress.getTrackingDate());
+        summary.setPriorStreak(carried);
+        summary.setPriorMaxStreak(priorMax);
+        summary.setCurrentStreak(streak);
+        summary.setMaxStreak(peak);
+    }
+
+    /**
+     * Walk rows in date order, starting from the seed row (the last row before {@code from})
+     * when {@code from} is given, or from the first row otherwise. Returns the rows walked.
+     */
+    private List<ProgressTracking> recompute(UserProgressSummary summary, ProgressTracking progress,
+                                             List<ProgressTracking> rows, LocalDate from) {
+        List<ProgressTracking> ordered = merge(rows, progress);
+
+        LocalDate previousDate = null;
+        int previousStreak = 0;
+        int peak = 0;
+        int start = 0;
+        if (from != null && !ordered.isEmpty() && ordered.get(0).getTrackingDate().isBefore(from)) {
+            ProgressTracking seed = ordered.get(0);
+            previousDate = seed.getTrackingDate();
+            previousStreak = valueOf(seed.getCurrentStreak());
+            peak = valueOf(seed.getDaysSmokeFreePeak());
+            start = 1;
+        }
+
+        walk(summary, ordered, start, previousDate, previousStreak, peak);
+        return ordered;
+    }
+
+    /**
+     * Single pass over date-ordered rows from index {@code start}, continuing the given seed state
+     */
+    private void walk(UserProgressSummary summary, List<ProgressTracking> ordered, int start,
+                      LocalDate previousDate, int previousStreak, int peak) {
+        summary.setLastTrackingDate(previousDate);
+        summary.setCurrentStreak(previousStreak);
+        summary.setMaxStreak(peak);
+        summary.setPriorStreak(0);
+        summary.setPriorMaxStreak(peak);
+        for (int i = start; i < ordered.size(); i++) {
+            ProgressTracking row = ordered.get(i);
+            int carried = previousDate != null && previousDate.plusDays(1).equals(row.getTrackingDate())
+                    ? previousStreak : 0;
+            setStreak(summary, row, carried, peak);
+            previousDate = row.getTrackingDate();
+            previousStreak = summary.getCurrentStreak();
+            peak = summary.getMaxStreak();
+        }
+    }
+
+    /**
+     * Insert the row being written into the date-ordered rows, replacing its persisted copy.
+     * Another row on the same date (legacy duplicate) is left out of the chain.
+     */
+    private List<ProgressTracking> merge(List<ProgressTracking> rows, ProgressTracking progress) {
+        if (progress == null) {
+            return new ArrayList<>(rows);
+        }
+        List<ProgressTracking> ordered = new ArrayList<>(rows.size() + 1);
+        boolean inserted = false;
+        for (ProgressTracking row : rows) {
+            if (row == progress || (row.getId() != null && Objects.equals(row.getId(), progress.getId()))
+                    || row.getTrackingDate().isEqual(progress.getTrackingDate())) {
+                continue;
+            }
+            if (!inserted && row.getTrackingDate().isAfter(progress.getTrackingDate())) {
+                ordered.add(progress);
+                inserted = true;
+            }
+            ordered.add(row);
+        }
+        if (!inserted) {
+            ordered.add(progress);
+        }
+        return ordered;
+    }
+
+    private void setTotals(UserProgressSummary summary, List<ProgressTracking> rows) {
+        summary.setTotalMoneySaved(BigDecimal.ZERO);
+        summary.setTotalDaysTracked(0L);
+        summary.setTotalSmokeFreeDays(0L);
+        summary.setTotalCigarettesSmoked(0L);
+        for (ProgressTracking row : rows) {
+            applyDelta(summary, null, Contribution.of(row));
+        }
+    }
+
+    private void applyDelta(UserProgressSummary summary, Contribution before, Contribution after) {
+        if (before == null) {
+            summary.setTotalDaysTracked(summary.getTotalDaysTracked() + 1);
+            before = Contribution.NONE;
+        }
+        summary.setTotalMoneySaved(summary.getTotalMoneySaved().add(after.moneySaved()).subtract(before.moneySaved()));
+        summary.setTotalCigarettesSmoked(summary.getTotalCigarettesSmoked()
+                + after.cigarettesSmoked() - before.cigarettesSmoked());
+        summary.setTotalSmokeFreeDays(summary.getTotalSmokeFreeDays()
+                + (after.smokeFree() ? 1 : 0) - (before.smokeFree() ? 1 : 0));
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static boolean isSmokeFree(ProgressTracking progress) {
+        return progress.getCigarettesSmoked() == null || progress.getCigarettesSmoked() == 0;
+    }
+
+    /**
+     * Rows to write after a batch: new rows, rows overwritten by an entry, and rows outside
+     * the batch whose streak changed
+     */
+    public static class BatchOutcome {
+        private final List<ProgressTracking> inserted = new ArrayList<>();
+        private final List<ProgressTracking> updated = new ArrayList<>();
+        private final List<ProgressTracking> streakChanged = new ArrayList<>();
+
+        public List<ProgressTracking> getInserted() { return inserted; }
+        public List<ProgressTracking> getUpdated() { return updated; }
+        public List<ProgressTracking> getStreakChanged() { return streakChanged; }
+    }
+
+    /**
+     * What one progress row adds to the totals; captured before a row is modified
+     */
+    public record Contribution(BigDecimal moneySaved, int cigarettesSmoked, boolean smokeFree) {
+
+        static final Contribution NONE = new Contribution(BigDecimal.ZERO, 0, false);
+
+        public static Contribution of(ProgressTracking progress) {
+            return new Contribution(
+                    progress.getMoneySaved() != null ? progress.getMoneySaved() : BigDecimal.ZERO,
+                    progress.getCigarettesSmoked() != null ? progress.getCigarettesSmoked() : 0,
+                    isSmokeFree(progress));
+        }
+    }
+}
@@ -1,18 +1,29 @@
 package com.smokingcessation.platform.service;
 
+import com.smokingcessation.platform.dto.ProgressHistoryItem;
+import com.smokingcessation.platform.dto.ProgressHistoryPage;
 import com.smokingcessation.platform.entity.ProgressTracking;
 import com.smokingcessation.platform.entity.User;
-import com.smokingcessation.platform.entity.SmokingStatus;
+import com.smokingcessation.platform.entity.UserProgressSummary;
+import com.smokingcessation.platform.repository.ProgressTrackingJdbcRepository;
 import com.smokingcessation.platform.repository.ProgressTrackingRepository;
-import com.smokingcessation.platform.repository.SmokingStatusRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -20,84 +31,211 @@ import java.util.Optional;
 public class ProgressTrackingService {
 
     private final ProgressTrackingRepository progressTrackingRepository;
-    private final SmokingStatusRepository smokingStatusRepository;
+    private final SmokingProfileCache smokingProfileCache;
+    private final ProgressSummaryService progressSummaryService;
+    private final ProgressTrackingJdbcRepository progressTrackingJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${progress.batch.max-entries:366}")
+    private int maxBatchEntries;
+
+    @Value("${progress.history.default-page-size:30}")
+    private int defaultHistoryPageSize;
+
+    @Value("${progress.history.max-page-size:100}")
+    private int maxHistoryPageSize;
 
     public ProgressTracking recordDailyProgress(Long userId, ProgressTracking progress) {
+        // Khóa dòng tổng hợp trước khi đọc/ghi progress_tracking (cùng thứ tự khóa với mọi đường ghi khác)
+        progressSummaryService.lockSummary(userId);
+
+        // Mỗi ngày một dòng (unique user_id + tracking_date): ngày đã có thì ghi đè, như bản đồng bộ theo lô
+        Optional<ProgressTracking> existing =
+            progressTrackingRepository.findByUserIdAndTrackingDate(userId, progress.getTrackingDate());
+        if (existing.isPresent()) {
+            ProgressTracking row = existing.get();
+            ProgressSummaryService.Contribution before = ProgressSummaryService.Contribution.of(row);
+            copyDailyFields(progress, row);
+            calculateProgressMetrics(row, before);
+            return progressTrackingRepository.save(row);
+        }
+
         User user = new User();
         user.setId(userId);
         progress.setUser(user);
 
-        // Tính toán các chỉ số tiến trình
-        calculateProgressMetrics(progress);
+        // Tính toán các chỉ số tiến trình (bản ghi mới, chưa đóng góp vào tổng)
+        calculateProgressMetrics(progress, null);
 
         return progressTrackingRepository.save(progress);
     }
 
+    // Đồng bộ nhiều ngày một lần (client offline): một lần đọc trạng thái, một lượt tính chuỗi, ghi bằng JDBC batch
+    public List<BatchItemResult> recordDailyProgressBatch(Long userId, List<ProgressTracking> entries) {
+        if (entries.size() > maxBatchEntries) {
+            throw new IllegalArgumentException("Tối đa " + maxBatchEntries + " ngày mỗi lần đồng bộ");
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(entries.size());
+        List<ProgressTracking> accepted = new ArrayList<>(entries.size());
+        Set<LocalDate> seenDates = new HashSet<>();
+        for (ProgressTracking entry : entries) {
+            if (entry.getTrackingDate() == null) {
+                results.add(BatchItemResult.rejected(null, "Thiếu ngày ghi nhận"));
+            } else if (!seenDates.add(entry.getTrackingDate())) {
+                results.add(BatchItemResult.rejected(entry.getTrackingDate(), "Trùng ngày trong cùng một lô"));
+            } else {
+                results.add(null); // điền sau khi ghi
+                accepted.add(entry);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        // Tiền tiết kiệm: đọc thông tin hút thuốc một lần cho cả lô
+        Optional<SmokingProfileCache.SmokingProfile> smokingProfile = smokingProfileCache.get(userId);
+        User user = new User();
+        user.setId(userId);
+        for (ProgressTracking entry : accepted) {
+            entry.setId(null);
+            entry.setUser(user);
+            if (entry.getCigarettesSmoked() == null) {
+                entry.setCigarettesSmoked(0);
+            }
+            smokingProfile.ifPresent(profile -> applyMoneySaved(entry, profile));
+        }
+
+        List<ProgressTracking> ordered = new ArrayList<>(accepted);
+        ordered.sort(Comparator.comparing(ProgressTracking::getTrackingDate));
+        ProgressSummaryService.BatchOutcome outcome = progressSummaryService.applyBatch(userId, ordered);
+
+        progressTrackingJdbcRepository.batchInsert(userId, outcome.getInserted());
+        progressTrackingJdbcRepository.batchUpdate(outcome.getUpdated());
+        progressTrackingJdbcRepository.batchUpdateStreaks(outcome.getStreakChanged());
+
+        // Huy hiệu được chấm nền một lần cho cả lô
+        eventPublisher.publishEvent(new ProgressRecordedEvent(userId));
+
+        // Entry đã có dòng cùng ngày được gán id của dòng đó (UPDATE), còn lại là INSERT
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                ProgressTracking entry = accepted.get(next++);
+                results.set(i, BatchItemResult.applied(entry, entry.getId() != null));
+            }
+        }
+        return results;
+    }
+
     // Ghi nhận sự kiện hút thuốc
     public ProgressTracking recordSmokingEvent(Long userId, int cigarettesSmoked) {
-        LocalDate today = LocalDate.now();
-        ProgressTracking progress = progressTrackingRepository
-            .findByUserIdAndTrackingDate(userId, today)
-            .orElse(new ProgressTracking());
-
-        if (progress.getId() == null) {
-            User user = new User();
-            user.setId(userId);
-            progress.setUser(user);
-            progress.setTrackingDate(today);
-            progress.setCigarettesSmoked(0);
-        }
+        // Khóa dòng tổng hợp trước dòng hôm nay, như recordDailyProgress, để hai đường ghi không khóa ngược thứ tự
+        progressSummaryService.lockSummary(userId);
 
-        progress.setCigarettesSmoked(progress.getCigarettesSmoked() + cigarettesSmoked);
+        // Cộng dồn nguyên tử trong DB (MERGE), dòng hôm nay bị khóa tới khi transaction kết thúc
+        ProgressTrackingJdbcRepository.Increment increment =
+            progressTrackingJdbcRepository.incrementCigarettes(userId, LocalDate.now(), cigarettesSmoked);
+        ProgressTracking progress = progressTrackingRepository.findById(increment.id())
+            .orElseThrow(() -> new IllegalStateException("Không tìm thấy tiến trình với ID: " + increment.id()));
 
-        // Reset chuỗi ngày không hút nếu đã hút thuốc
-        if (cigarettesSmoked > 0) {
-            progress.setCurrentStreak(0);
+        // Phần đóng góp cũ của bản ghi hôm nay vào bảng tổng hợp: các cột khác chưa đổi, chỉ trừ lại số điếu vừa cộng
+        ProgressSummaryService.Contribution before = null;
+        if (!increment.inserted()) {
+            progress.setCigarettesSmoked(progress.getCigarettesSmoked() - cigarettesSmoked);
+            before = ProgressSummaryService.Contribution.of(progress);
+            progress.setCigarettesSmoked(progress.getCigarettesSmoked() + cigarettesSmoked);
         }
 
-        calculateProgressMetrics(progress);
+        // Chuỗi ngày không hút được tính lại trong calculateProgressMetrics (về 0 nếu đã hút)
+        calculateProgressMetrics(progress, before);
 
         return progressTrackingRepository.save(progress);
     }
 
-    private void calculateProgressMetrics(ProgressTracking progress) {
+    private void calculateProgressMetrics(ProgressTracking progress, ProgressSummaryService.Contribution before) {
         Long userId = progress.getUser().getId();
 
         // Tính tiền tiết kiệm
-        Optional<SmokingStatus> smokingStatusOpt = smokingStatusRepository.findByUserId(userId);
-        if (smokingStatusOpt.isPresent()) {
-            SmokingStatus status = smokingStatusOpt.get();
-            BigDecimal dailyCost = status.getCigarettePrice()
-                .multiply(BigDecimal.valueOf(status.getCigarettesPerDay()));
-
-            // Tiền tiết kiệm hôm nay = chi phí hàng ngày - (số điếu đã hút * giá per điếu)
-            BigDecimal pricePerCigarette = status.getCigarettePrice()
-                .divide(BigDecimal.valueOf(20), 2, BigDecimal.ROUND_HALF_UP); // giả sử 20 điếu/bao
-            BigDecimal moneySpent = pricePerCigarette.multiply(BigDecimal.valueOf(progress.getCigarettesSmoked()));
-            BigDecimal moneySaved = dailyCost.subtract(moneySpent);
-
-            progress.setMoneySaved(moneySaved.max(BigDecimal.ZERO));
-        }
+        smokingProfileCache.get(userId).ifPresent(profile -> applyMoneySaved(progress, profile));
 
-        // Cập nhật chuỗi ngày không hút
-        if (progress.getCigarettesSmoked() == 0) {
-            Integer previousStreak = getPreviousStreak(userId, progress.getTrackingDate());
-            progress.setCurrentStreak(previousStreak + 1);
-            progress.setDaysSmokeFreePeak(Math.max(progress.getDaysSmokeFreePeak(), progress.getCurrentStreak()));
-        }
+        // Cập nhật chuỗi ngày không hút và các tổng từ trạng thái tổng hợp của user (không query ngày hôm trước)
+        progressSummaryService.applyProgress(userId, progress, before);
+
+        // Huy hiệu được chấm nền sau khi commit (AchievementEvaluationQueue)
+        eventPublisher.publishEvent(new ProgressRecordedEvent(userId));
+    }
+
+    private void copyDailyFields(ProgressTracking from, ProgressTracking to) {
+        to.setCigarettesSmoked(from.getCigarettesSmoked() != null ? from.getCigarettesSmoked() : 0);
+        to.setHealthStatus(from.getHealthStatus());
+        to.setMoodScore(from.getMoodScore());
+        to.setCravingIntensity(from.getCravingIntensity());
+        to.setExerciseMinutes(from.getExerciseMinutes());
+        to.setSleepHours(from.getSleepHours());
+        to.setNotes(from.getNotes());
     }
 
-    private Integer getPreviousStreak(Long userId, LocalDate currentDate) {
-        LocalDate previousDate = currentDate.minusDays(1);
-        return progressTrackingRepository.findByUserIdAndTrackingDate(userId, previousDate)
-            .map(ProgressTracking::getCurrentStreak)
-            .orElse(0);
+    private void applyMoneySaved(ProgressTracking progress, SmokingProfileCache.SmokingProfile status) {
+        BigDecimal dailyCost = status.getCigarettePrice()
+            .multiply(BigDecimal.valueOf(status.getCigarettesPerDay()));
+
+        // Tiền tiết kiệm hôm nay = chi phí hàng ngày - (số điếu đã hút * giá per điếu)
+        BigDecimal pricePerCigarette = QuitPlanCalculator.pricePerCigarette(status.getCigarettePrice());
+        BigDecimal moneySpent = pricePerCigarette.multiply(BigDecimal.valueOf(progress.getCigarettesSmoked()));
+        BigDecimal moneySaved = dailyCost.subtract(moneySpent);
+
+        progress.setMoneySaved(moneySaved.max(BigDecimal.ZERO));
     }
 
     public List<ProgressTracking> getUserProgress(Long userId) {
         return progressTrackingRepository.findByUserIdOrderByTrackingDateDesc(userId);
     }
 
+    /**
+     * Một trang lịch sử (mới nhất trước). Cursor là vị trí (trackingDate, id) của dòng cuối trang trước,
+     * nên chi phí mỗi trang không phụ thuộc vào độ dài lịch sử.
+     */
+    @Transactional(readOnly = true)
+    public ProgressHistoryPage getUserProgressPage(Long userId, String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultHistoryPageSize : Math.min(size, maxHistoryPageSize);
+        // Lấy thêm một dòng để biết còn trang sau hay không
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<ProgressHistoryItem> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = progressTrackingRepository.findHistoryFirstPage(userId, limit);
+        } else {
+            String[] position = decodeCursor(cursor);
+            rows = progressTrackingRepository.findHistoryPageAfter(
+                userId, LocalDate.parse(position[0]), Long.valueOf(position[1]), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ProgressHistoryItem> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? encodeCursor(items.get(items.size() - 1)) : null;
+        return new ProgressHistoryPage(items, nextCursor, hasMore);
+    }
+
+    private String encodeCursor(ProgressHistoryItem last) {
+        String position = last.getTrackingDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            LocalDate.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+
     public List<ProgressTracking> getUserProgressInRange(Long userId, LocalDate startDate, LocalDate endDate) {
         return progressTrackingRepository.findByUserIdAndDateRange(userId, startDate, endDate);
     }
@@ -106,25 +244,52 @@ public class ProgressTrackingService {
         return progressTrackingRepository.findByUserIdAndTrackingDate(userId, LocalDate.now());
     }
 
-    // Tính toán thống kê tổng thể của user
+    // Thống kê tổng thể của user: đọc một dòng từ bảng tổng hợp theo khóa chính
     public ProgressStats calculateUserStats(Long userId) {
-        List<ProgressTracking> allProgress = progressTrackingRepository.findByUserId(userId);
+        UserProgressSummary summary = progressSummaryService.getSummary(userId);
+        return new ProgressStats(summary.getMaxStreak(), summary.getTotalMoneySaved(), summary.getTotalDaysTracked(),
+            summary.getCurrentStreak(), summary.getTotalSmokeFreeDays());
+    }
+
+    // Dựng lại bảng tổng hợp từ dữ liệu hiện có (một user hoặc toàn bộ)
+    public ProgressStats rebuildUserStats(Long userId) {
+        progressSummaryService.rebuild(userId);
+        return calculateUserStats(userId);
+    }
 
-        int maxStreak = progressTrackingRepository.findMaxStreakByUserId(userId).orElse(0);
+    public static class BatchItemResult {
+        public enum Status { CREATED, UPDATED, REJECTED }
 
-        BigDecimal totalMoneySaved = allProgress.stream()
-            .map(ProgressTracking::getMoneySaved)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        private final LocalDate trackingDate;
+        private final Status status;
+        private final Integer currentStreak;
+        private final BigDecimal moneySaved;
+        private final String message;
 
-        long totalDaysTracked = allProgress.size();
-        int currentStreak = allProgress.isEmpty() ? 0 : allProgress.get(0).getCurrentStreak();
+        public BatchItemResult(LocalDate trackingDate, Status status, Integer currentStreak,
+                               BigDecimal moneySaved, String message) {
+            this.trackingDate = trackingDate;
+            this.status = status;
+            this.currentStreak = currentStreak;
+            this.moneySaved = moneySaved;
+            this.message = message;
+        }
+
+        static BatchItemResult applied(ProgressTracking progress, boolean updated) {
+            return new BatchItemResult(progress.getTrackingDate(), updated ? Status.UPDATED : Status.CREATED,
+                progress.getCurrentStreak(), progress.getMoneySaved(), null);
+        }
 
-        // Tính tổng số ngày không hút thuốc
-        long totalSmokeFreeeDays = allProgress.stream()
-            .mapToLong(p -> p.getCigarettesSmoked() == 0 ? 1 : 0)
-            .sum();
+        static BatchItemResult rejected(LocalDate trackingDate, String message) {
+            return new BatchItemResult(trackingDate, Status.REJECTED, null, null, message);
+        }
 
-        return new ProgressStats(maxStreak, totalMoneySaved, totalDaysTracked, currentStreak, totalSmokeFreeeDays);
+        // Getters
+        public LocalDate getTrackingDate() { return trackingDate; }
+        public Status getStatus() { return status; }
+        public Integer getCurrentStreak() { return currentStreak; }
+        public BigDecimal getMoneySaved() { return moneySaved; }
+        public String getMessage() { return message; }
     }
 
     public static class ProgressStats {
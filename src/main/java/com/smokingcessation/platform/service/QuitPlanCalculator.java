@@ -0,0 +1,51 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.entity.PlanMilestone;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plan math shared by {@link QuitPlanService#createPlan} and the what-if simulator, so a
+ * simulated plan has exactly the milestones a persisted one would get.
+ * <p>
+ * Stair-step: with N0 cigarettes per day over T days, step k (1..N0) starts at day
+ * ceil(k * T / N0) and allows N0 - k cigarettes.
+ */
+public final class QuitPlanCalculator {
+
+    static final int DAYS_PER_MONTH = 30;
+    static final int CIGARETTES_PER_PACK = 20;
+
+    private QuitPlanCalculator() {
+    }
+
+    public static int totalDays(BigDecimal quitMonths) {
+        return quitMonths.multiply(BigDecimal.valueOf(DAYS_PER_MONTH)).intValue();
+    }
+
+    /**
+     * Milestones ordered by stepIndex, not attached to any plan
+     */
+    public static List<PlanMilestone> milestones(BigDecimal quitMonths, int cigsPerDay) {
+        double stepDays = (double) totalDays(quitMonths) / cigsPerDay;
+        List<PlanMilestone> milestones = new ArrayList<>(cigsPerDay);
+        for (int k = 1; k <= cigsPerDay; k++) {
+            PlanMilestone m = new PlanMilestone();
+            m.setStepIndex(k);
+            m.setDayOffset((int) Math.ceil(k * stepDays));
+            m.setTargetCigarettes(cigsPerDay - k);
+            milestones.add(m);
+        }
+        return milestones;
+    }
+
+    /**
+     * Price of one cigarette from the price of a pack, rounded to 2 decimals
+     */
+    public static BigDecimal pricePerCigarette(BigDecimal packPrice) {
+        return packPrice.divide(BigDecimal.valueOf(CIGARETTES_PER_PACK), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -5,6 +5,8 @@ import com.smokingcessation.platform.entity.*;
 import com.smokingcessation.platform.repository.*;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,10 +14,11 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +27,7 @@ public class QuitPlanService {
     private final PlanMilestoneRepository milestoneRepo;
     private final UserRepository userRepo;
     private final UserProgressRepository progressRepo;
+    private final PlanTargetCurveCache planTargetCurveCache;
 
     @Transactional
     public PlanResponse createPlan(CreatePlanRequest req) {
@@ -34,26 +38,16 @@ public class QuitPlanService {
         plan.setUser(user);
         plan.setStartDate(LocalDate.now());
         plan.setQuitMonths(req.getQuitMonths());
-        plan = planRepo.save(plan);
-
-        // Tính milestones theo stair-step
-        int N0 = req.getCigsPerDay();
-        int totalDays = req.getQuitMonths().multiply(BigDecimal.valueOf(30)).intValue();
-        double D = (double) totalDays / N0;
 
+        // id lấy từ sequence (pooled), insert plan + milestones được gom batch khi flush
         QuitPlan savedPlan = planRepo.save(plan);
-        List<PlanMilestone> list = IntStream.rangeClosed(1, N0)
-                .mapToObj(k -> {
-                    PlanMilestone m = new PlanMilestone();
-                    m.setQuitPlan(savedPlan);
-                    m.setStepIndex(k);
-                    m.setDayOffset((int) Math.ceil(k * D));
-                    m.setTargetCigarettes(N0 - k);
-                    return m;
-                })
-                .collect(Collectors.toList());
+
+        // Tính milestones theo stair-step
+        List<PlanMilestone> list = QuitPlanCalculator.milestones(req.getQuitMonths(), req.getCigsPerDay());
+        list.forEach(m -> m.setQuitPlan(savedPlan));
 
         milestoneRepo.saveAll(list);
+        planTargetCurveCache.invalidate(savedPlan.getId());
 
         // Trả về DTO
         PlanResponse resp = new PlanResponse();
@@ -136,26 +130,41 @@ public class QuitPlanService {
                 }).collect(Collectors.toList());
     }
 
+    // Tối đa hai truy vấn dù user có bao nhiêu kế hoạch: danh sách kế hoạch, rồi toàn bộ mốc bằng IN
+    @Transactional(readOnly = true)
     public List<PlanResponse> getByUser(Long userId){
-        return planRepo.findByUserId(userId)
-                .stream()
-                .map(plan -> {
-                    PlanResponse resp = new PlanResponse();
-                    resp.setPlanId(plan.getId());
-                    resp.setStartDate(plan.getStartDate());
-                    resp.setQuitMonths(plan.getQuitMonths());
-
-                    List<PlanMilestone> milestones = milestoneRepo.findByQuitPlanIdOrderByStepIndex(plan.getId());
-                    resp.setMilestones(milestones.stream().map(m -> {
-                        MilestoneDto d = new MilestoneDto();
-                        d.setStepIndex(m.getStepIndex());
-                        d.setDayOffset(m.getDayOffset());
-                        d.setTargetCigarettes(m.getTargetCigarettes());
-                        return d;
-                    }).collect(Collectors.toList()));
-
-                    return resp;
-                }).collect(Collectors.toList());
+        return toPlanResponses(planRepo.findPlanRowsByUserId(userId, Pageable.unpaged()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PlanResponse> getByUser(Long userId, int page, int size){
+        return toPlanResponses(planRepo.findPlanRowsByUserId(userId, PageRequest.of(page, size)));
+    }
+
+    private List<PlanResponse> toPlanResponses(List<Object[]> planRows) {
+        if (planRows.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, PlanResponse> plans = new LinkedHashMap<>();
+        for (Object[] row : planRows) {
+            PlanResponse resp = new PlanResponse();
+            resp.setPlanId((Long) row[0]);
+            resp.setStartDate((LocalDate) row[1]);
+            resp.setQuitMonths((BigDecimal) row[2]);
+            resp.setMilestones(new ArrayList<>());
+            plans.put(resp.getPlanId(), resp);
+        }
+
+        // Kết quả đã sắp theo (plan, stepIndex) nên chỉ cần nối vào đúng kế hoạch
+        for (Object[] row : milestoneRepo.findRowsByQuitPlanIds(plans.keySet())) {
+            MilestoneDto d = new MilestoneDto();
+            d.setStepIndex((Integer) row[1]);
+            d.setDayOffset((Integer) row[2]);
+            d.setTargetCigarettes((Integer) row[3]);
+            plans.get((Long) row[0]).getMilestones().add(d);
+        }
+        return new ArrayList<>(plans.values());
     }
 }
 
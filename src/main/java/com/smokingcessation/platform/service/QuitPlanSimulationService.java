@@ -0,0 +1,186 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.dto.MilestoneDto;
+import com.smokingcessation.platform.entity.PlanMilestone;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * What-if comparison of candidate quit plans. Nothing is read from or written to the database:
+ * each scenario builds its milestones with {@link QuitPlanCalculator} and its daily targets with
+ * {@link PlanTargetCurve}, the same code a persisted plan goes through.
+ * <p>
+ * Scenarios run in parallel on the bounded planSimulationExecutor; a full queue or a missed
+ * deadline surfaces as {@link SimulationUnavailableException} (503).
+ */
+@Service
+public class QuitPlanSimulationService {
+
+    private final ThreadPoolTaskExecutor simulationExecutor;
+    private final int maxScenarios;
+    private final BigDecimal maxQuitMonths;
+    private final int maxCigsPerDay;
+    private final Duration timeout;
+
+    public QuitPlanSimulationService(@Qualifier("planSimulationExecutor") ThreadPoolTaskExecutor simulationExecutor,
+                                     @Value("${quit-plan.simulation.max-scenarios:50}") int maxScenarios,
+                                     @Value("${quit-plan.simulation.max-quit-months:24}") BigDecimal maxQuitMonths,
+                                     @Value("${quit-plan.simulation.max-cigs-per-day:100}") int maxCigsPerDay,
+                                     @Value("${quit-plan.simulation.timeout:5s}") Duration timeout) {
+        this.simulationExecutor = simulationExecutor;
+        this.maxScenarios = maxScenarios;
+        this.maxQuitMonths = maxQuitMonths;
+        this.maxCigsPerDay = maxCigsPerDay;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Results are in the order of the given scenarios
+     *
+     * @throws IllegalArgumentException when a scenario is out of range
+     */
+    public List<SimulationResult> simulate(List<Scenario> scenarios) {
+        validate(scenarios);
+
+        List<Future<SimulationResult>> futures = new ArrayList<>(scenarios.size());
+        try {
+            for (Scenario scenario : scenarios) {
+                futures.add(simulationExecutor.submit(() -> simulate(scenario)));
+            }
+        } catch (TaskRejectedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new SimulationUnavailableException("Plan simulation is saturated, retry later");
+        }
+
+        // Một deadline chung cho cả request, không phải timeout cho từng kịch bản
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<SimulationResult> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<SimulationResult> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new SimulationUnavailableException("Plan simulation timed out, retry later");
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating plans", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Plan simulation failed", e.getCause());
+        }
+        return results;
+    }
+
+    private void validate(List<Scenario> scenarios) {
+        if (scenarios == null || scenarios.isEmpty()) {
+            throw new IllegalArgumentException("At least one scenario is required");
+        }
+        if (scenarios.size() > maxScenarios) {
+            throw new IllegalArgumentException("At most " + maxScenarios + " scenarios per request");
+        }
+        for (Scenario s : scenarios) {
+            if (s.getQuitMonths() == null || s.getQuitMonths().signum() <= 0
+                    || s.getQuitMonths().compareTo(maxQuitMonths) > 0) {
+                throw new IllegalArgumentException("quitMonths must be in (0, " + maxQuitMonths + "]");
+            }
+            if (s.getCigsPerDay() == null || s.getCigsPerDay() <= 0 || s.getCigsPerDay() > maxCigsPerDay) {
+                throw new IllegalArgumentException("cigsPerDay must be in [1, " + maxCigsPerDay + "]");
+            }
+            if (s.getCigarettePrice() != null && s.getCigarettePrice().signum() < 0) {
+                throw new IllegalArgumentException("cigarettePrice must not be negative");
+            }
+            if (QuitPlanCalculator.totalDays(s.getQuitMonths()) <= 0) {
+                throw new IllegalArgumentException("quitMonths must cover at least one day");
+            }
+        }
+    }
+
+    /**
+     * One scenario, assuming the smoker exactly meets every daily target.
+     * Day 0 is the plan start date; the last simulated day is the final milestone.
+     */
+    static SimulationResult simulate(Scenario scenario) {
+        int cigsPerDay = scenario.getCigsPerDay();
+        List<PlanMilestone> milestones = QuitPlanCalculator.milestones(scenario.getQuitMonths(), cigsPerDay);
+        PlanTargetCurve curve = PlanTargetCurve.of(milestones);
+
+        int days = milestones.get(milestones.size() - 1).getDayOffset() + 1;
+        int[] dailyTargets = new int[days];
+        long[] cumulativeAvoided = new long[days];
+        long avoided = 0;
+        for (int day = 0; day < days; day++) {
+            dailyTargets[day] = curve.targetFor(day);
+            avoided += cigsPerDay - dailyTargets[day];
+            cumulativeAvoided[day] = avoided;
+        }
+
+        SimulationResult result = new SimulationResult();
+        result.setQuitMonths(scenario.getQuitMonths());
+        result.setCigsPerDay(cigsPerDay);
+        result.setCigarettePrice(scenario.getCigarettePrice());
+        result.setDays(days);
+        result.setMilestones(milestones.stream().map(m -> {
+            MilestoneDto d = new MilestoneDto();
+            d.setStepIndex(m.getStepIndex());
+            d.setDayOffset(m.getDayOffset());
+            d.setTargetCigarettes(m.getTargetCigarettes());
+            return d;
+        }).toList());
+        result.setDailyTargets(dailyTargets);
+        result.setCumulativeCigarettesAvoided(cumulativeAvoided);
+        result.setCigarettesAvoided(avoided);
+        if (scenario.getCigarettePrice() != null) {
+            // Cùng cách tính giá một điếu như UserService.calculateSavings
+            result.setMoneySaved(BigDecimal.valueOf(avoided)
+                .multiply(QuitPlanCalculator.pricePerCigarette(scenario.getCigarettePrice())));
+        }
+        return result;
+    }
+
+    @Data
+    public static class Scenario {
+        private BigDecimal quitMonths;
+        private Integer cigsPerDay;
+        private BigDecimal cigarettePrice; // giá một bao (20 điếu), không bắt buộc
+    }
+
+    @Data
+    public static class SimulationResult {
+        private BigDecimal quitMonths;
+        private Integer cigsPerDay;
+        private BigDecimal cigarettePrice;
+        private int days;
+        private List<MilestoneDto> milestones;
+        private int[] dailyTargets;                 // target của ngày 0..days-1
+        private long[] cumulativeCigarettesAvoided; // cộng dồn (cigsPerDay - target) tới hết mỗi ngày
+        private long cigarettesAvoided;
+        private BigDecimal moneySaved;              // null khi không có cigarettePrice
+    }
+
+    /**
+     * Thrown when the simulation executor is saturated or the request misses its deadline; mapped to 503
+     */
+    public static class SimulationUnavailableException extends RuntimeException {
+        public SimulationUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.entity.RefreshToken;
+import com.smokingcessation.platform.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens. Only the SHA-256 of a token is stored; every use rotates it
+ * into a new token of the same family. Presenting a token that was already rotated
+ * means it leaked, so the whole family is revoked.
+ */
+@Service
+@Transactional
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private long refreshExpiration;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    /**
+     * Issue a refresh token starting a new family (login, registration)
+     */
+    public IssuedToken issue(Long userId) {
+        return create(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchange a refresh token for a new one of the same family.
+     * Empty when the token is unknown, expired, revoked or reused.
+     */
+    public Optional<IssuedToken> rotate(String rawToken) {
+        Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHash(hash(rawToken));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshToken refreshToken = stored.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (Boolean.TRUE.equals(refreshToken.getRevoked()) || refreshToken.getExpiresAt().isBefore(now)) {
+            return Optional.empty();
+        }
+
+        // Conditional update so two concurrent uses cannot both succeed
+        if (refreshTokenRepository.markUsed(refreshToken.getId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(refreshToken.getFamilyId());
+            log.warn("Refresh token reuse detected for user {}, revoked {} token(s) of family {}",
+                    refreshToken.getUserId(), revoked, refreshToken.getFamilyId());
+            return Optional.empty();
+        }
+
+        return Optional.of(create(refreshToken.getUserId(), refreshToken.getFamilyId()));
+    }
+
+    /**
+     * Revoke the family of the given token (logout on one device)
+     */
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    /**
+     * Revoke every refresh token of a user (password change, deactivation)
+     */
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.cleanup-interval:3600000}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    public long getExpirationTimeInSeconds() {
+        return refreshExpiration / 1000;
+    }
+
+    private IssuedToken create(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUserId(userId);
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration)));
+        refreshTokenRepository.save(refreshToken);
+
+        return new IssuedToken(rawToken, userId);
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Raw token handed to the client once, never stored
+     */
+    public static class IssuedToken {
+        private final String token;
+        private final Long userId;
+
+        public IssuedToken(String token, Long userId) {
+            this.token = token;
+            this.userId = userId;
+        }
+
+        public String getToken() { return token; }
+        public Long getUserId() { return userId; }
+    }
+}
@@ -0,0 +1,84 @@
+package com.smokingcessation.platform.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smokingcessation.platform.entity.SmokingStatus;
+import com.smokingcessation.platform.repository.SmokingStatusRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Current smoking profile (price and cigarettes per day) of a user, loaded from the
+ * latest SmokingStatus. Users without a status are cached as empty as well.
+ * Every write to SmokingStatus must call {@link #invalidate(Long)}.
+ */
+@Component
+public class SmokingProfileCache {
+
+    private final SmokingStatusRepository smokingStatusRepository;
+    private final Cache<Long, Optional<SmokingProfile>> profiles;
+
+    public SmokingProfileCache(SmokingStatusRepository smokingStatusRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${progress.smoking-profile-cache.max-size:10000}") long maxSize,
+                               @Value("${progress.smoking-profile-cache.ttl:30m}") Duration ttl) {
+        this.smokingStatusRepository = smokingStatusRepository;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "smoking.profile");
+    }
+
+    public Optional<SmokingProfile> get(Long userId) {
+        return profiles.get(userId, id -> smokingStatusRepository.findTopByUserIdOrderByCreatedAtDesc(id)
+                .map(SmokingProfile::of));
+    }
+
+    /**
+     * Evict now and again after the surrounding transaction commits, so a concurrent
+     * read cannot put the pre-commit row back into the cache
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        profiles.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    profiles.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public static class SmokingProfile {
+        private final BigDecimal cigarettePrice;
+        private final Integer cigarettesPerDay;
+
+        public SmokingProfile(BigDecimal cigarettePrice, Integer cigarettesPerDay) {
+            this.cigarettePrice = cigarettePrice;
+            this.cigarettesPerDay = cigarettesPerDay;
+        }
+
+        static SmokingProfile of(SmokingStatus status) {
+            return new SmokingProfile(status.getCigarettePrice(), status.getCigarettesPerDay());
+        }
+
+        // Getters
+        public BigDecimal getCigarettePrice() { return cigarettePrice; }
+        public Integer getCigarettesPerDay() { return cigarettesPerDay; }
+    }
+}
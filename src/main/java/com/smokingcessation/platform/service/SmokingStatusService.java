@@ -16,6 +16,7 @@ import java.util.Optional;
 public class SmokingStatusService {
 
     private final SmokingStatusRepository smokingStatusRepository;
+    private final SmokingProfileCache smokingProfileCache;
 
     public SmokingStatus createOrUpdateSmokingStatus(SmokingStatus smokingStatus) {
 //        var existingStatus = smokingStatusRepository.findByUserId(smokingStatus.getUser().getId());
@@ -33,7 +34,9 @@ public class SmokingStatusService {
 //            return smokingStatusRepository.save(existing);
 //        }
 
-        return smokingStatusRepository.save(smokingStatus);
+        SmokingStatus saved = smokingStatusRepository.save(smokingStatus);
+        smokingProfileCache.invalidate(saved.getUser() != null ? saved.getUser().getId() : null);
+        return saved;
     }
 
     public List<SmokingStatus> findByUserId(Long userId) {
@@ -41,11 +44,8 @@ public class SmokingStatusService {
     }
 
     public SmokingStatus findCurrentSmokingStatus(Long userId) {
-        List<SmokingStatus> statuses = smokingStatusRepository.findAllByUserId(userId);
-        if (statuses.isEmpty()) {
-            throw new RuntimeException("Không tìm thấy thông tin hút thuốc cho người dùng với ID: " + userId);
-        }
-        return statuses.get(statuses.size() - 1);
+        return smokingStatusRepository.findTopByUserIdOrderByCreatedAtDesc(userId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy thông tin hút thuốc cho người dùng với ID: " + userId));
     }
 
     public Optional<SmokingStatus> findByUser(User user) {
@@ -66,6 +66,7 @@ public class SmokingStatusService {
         status.setSmokingFrequency(frequency);
         status.setBrandName(brandName);
         status.setCigarettePrice(cigarettePrice);
+        smokingProfileCache.invalidate(userId);
 
         return smokingStatusRepository.save(status);
     }
@@ -80,6 +81,7 @@ public class SmokingStatusService {
         status.setAttemptsToQuit(attemptsToQuit);
         status.setTriggers(triggers);
         status.setMotivationLevel(motivationLevel);
+        smokingProfileCache.invalidate(userId);
 
         return smokingStatusRepository.save(status);
     }
@@ -87,5 +89,6 @@ public class SmokingStatusService {
     public void deleteSmokingStatus(Long userId) {
         smokingStatusRepository.findByUserId(userId)
             .ifPresent(smokingStatusRepository::delete);
+        smokingProfileCache.invalidate(userId);
     }
 }
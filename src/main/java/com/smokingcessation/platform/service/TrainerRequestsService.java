@@ -10,6 +10,8 @@ import com.smokingcessation.platform.enums.TrainerRequestStatus;
 import com.smokingcessation.platform.repository.ITrainerRequestsRepository;
 import com.smokingcessation.platform.repository.RoleRepository;
 import com.smokingcessation.platform.repository.UserRepository;
+import com.smokingcessation.platform.security.SecurityStampService;
+import com.smokingcessation.platform.security.UserDetailsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -36,6 +38,12 @@ public class TrainerRequestsService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private SecurityStampService securityStampService;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
 
     public TrainerRequestsModel createTrainerRequest(TrainerRequestsDTO dto) {
 
@@ -89,6 +97,9 @@ public class TrainerRequestsService {
             updatedRoles.add(coachRole);
             trainer.setRoles(updatedRoles);
 
+            // Đổi role -> token cũ (role cũ) phải đăng nhập lại
+            securityStampService.rotate(trainer);
+
             // Gán thông tin hồ sơ
             trainer.setCertification(request.getCertification());
             trainer.setBio(request.getBio());
@@ -96,6 +107,8 @@ public class TrainerRequestsService {
             trainer.setUpdatedAt(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
 
             userRepository.save(trainer);
+            // Không có transaction bao ngoài: save đã commit, xóa cache sau đó để lần load tiếp theo đọc role mới
+            userDetailsCache.evict(trainer);
 
             // Gửi email xác nhận
             try {
@@ -3,12 +3,16 @@ package com.smokingcessation.platform.service;
 import com.smokingcessation.platform.dto.SavingsDTO;
 import com.smokingcessation.platform.entity.*;
 import com.smokingcessation.platform.repository.*;
+import com.smokingcessation.platform.security.LoginAttemptService;
+import com.smokingcessation.platform.security.SecurityStampService;
+import com.smokingcessation.platform.security.UserIdentityIndex;
+import com.smokingcessation.platform.security.UserDetailsCache;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -27,22 +31,36 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordService passwordService;
 
     @Autowired
     private QuitPlanRepository quitPlanRepo;
     @Autowired
-    private PlanMilestoneRepository milestoneRepo;
+    private PlanTargetCurveCache planTargetCurveCache;
     @Autowired
     private UserProgressRepository progressRepo;
 
     @Autowired
-    private SmokingStatusService smokingStatusService;
+    private SmokingProfileCache smokingProfileCache;
+
+    @Autowired
+    private SecurityStampService securityStampService;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @Autowired
+    private UserIdentityIndex userIdentityIndex;
 
 
 
+    // BCrypt chạy ngoài transaction để không giữ connection của Hikari trong lúc hash
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public User registerUser(User user, Set<Role.RoleName> roleNames) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordService.encodePassword(user.getPassword()));
         user.setProfileImage("https://img.freepik.com/premium-vector/character-avatar-isolated_729149-194801.jpg?semt=ais_hybrid&w=740");
         Set<Role> roles = new HashSet<>();
         for (Role.RoleName roleName : roleNames) {
@@ -52,20 +70,58 @@ public class UserService {
         }
         user.setRoles(roles);
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userIdentityIndex.add(saved.getUsername(), saved.getEmail());
+        return saved;
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public User loginUser(String username, String password) {
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy user với username: " + username));
+        return loginUser(username, password, null);
+    }
 
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public User loginUser(String username, String password, String clientIp) {
+        // Quyết định khóa dựa trên bộ đếm trong bộ nhớ, không tốn query hay BCrypt
+        if (loginAttemptService.isBlocked(username, clientIp)) {
+            throw new LoginAttemptService.LoginBlockedException();
+        }
+
+        Optional<User> userOpt = userRepository.findByEmail(username);
+        if (userOpt.isEmpty()) {
+            loginAttemptService.recordFailure(username, clientIp);
+            throw new RuntimeException("Không tìm thấy user với username: " + username);
+        }
+        User user = userOpt.get();
+
+        if (user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(LocalDateTime.now())) {
+            throw new LoginAttemptService.LoginBlockedException();
+        }
+
+        if (!passwordService.verifyPassword(password, user.getPassword())) {
+            loginAttemptService.recordFailure(username, clientIp);
             throw new RuntimeException("Mật khẩu không đúng");
         }
+        loginAttemptService.recordSuccess(username);
+
+        // Hash cũ được tạo với cost khác cấu hình hiện tại -> hash lại
+        if (passwordService.needsRehash(user.getPassword())) {
+            user.setPassword(passwordService.encodePassword(password));
+            userDetailsCache.evict(user);
+            user = userRepository.save(user);
+        }
 
         return user;
     }
 
+    public void updatePasswordHash(Long userId, String encodedPassword) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy user"));
+        user.setPassword(encodedPassword);
+        userDetailsCache.evict(user);
+        userRepository.save(user);
+    }
+
     public Optional<User> findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
@@ -91,25 +147,41 @@ public class UserService {
     }
 
     public User updateUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userIdentityIndex.add(saved.getUsername(), saved.getEmail());
+        return saved;
     }
 
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
     }
 
+    // Bloom filter trả lời "chắc chắn chưa có" mà không cần query, chỉ khi có thể trùng mới hỏi DB
+    @Transactional(readOnly = true)
     public boolean existsByUsername(String username) {
+        if (!userIdentityIndex.mightContainUsername(username)) {
+            return false;
+        }
         return userRepository.existsByUsername(username);
     }
 
+    @Transactional(readOnly = true)
     public boolean existsByEmail(String email) {
+        if (!userIdentityIndex.mightContainEmail(email)) {
+            return false;
+        }
         return userRepository.existsByEmail(email);
     }
 
     public User updateUserStatus(Long userId, User.UserStatus status) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("Không tìm thấy user"));
+        if (user.getStatus() != status) {
+            // Token đã cấp trước khi đổi trạng thái sẽ không còn hợp lệ
+            securityStampService.rotate(user);
+        }
         user.setStatus(status);
+        userDetailsCache.evict(user);
         return userRepository.save(user);
     }
 
@@ -135,32 +207,38 @@ public class UserService {
             throw new EntityNotFoundException("Không tìm thấy kế hoạch bỏ thuốc lá cho người dùng với ID: " + userId);
         }
 
-        SmokingStatus smokingStatus = smokingStatusService.findCurrentSmokingStatus(userId);
+        SmokingProfileCache.SmokingProfile smokingProfile = smokingProfileCache.get(userId)
+                .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy thông tin hút thuốc cho người dùng với ID: " + userId));
 
-        if (smokingStatus == null) {
-            throw new EntityNotFoundException("Không tìm thấy thông tin hút thuốc cho người dùng với ID: " + userId);
-        }
-
-        BigDecimal priceOneCigarette = smokingStatus.getCigarettePrice()
-                .divide(BigDecimal.valueOf(20), 2, RoundingMode.HALF_UP);
+        BigDecimal priceOneCigarette = QuitPlanCalculator.pricePerCigarette(smokingProfile.getCigarettePrice());
 
-        List<PlanMilestone> milestone = milestoneRepo.findByQuitPlanIdOrderByStepIndex(existingQuitPlan.getId());
-        List<UserProgress> progress = progressRepo.findAllByQuitPlanId(existingQuitPlan.getId());
+        PlanTargetCurve targetCurve = planTargetCurveCache.get(existingQuitPlan.getId());
+        List<UserProgress> progress = progressRepo.findByQuitPlanIdOrderByLogDate(existingQuitPlan.getId());
         int totalSmoked = progress.stream()
                 .mapToInt(UserProgress::getSmoked)
                 .sum();
 
+        // Cộng target theo từng đoạn ngày log liên tiếp: mỗi đoạn là một lần tra prefix sum O(log m)
         LocalDate startDate = existingQuitPlan.getStartDate();
-        int totalTarget = 0;
+        long totalTarget = 0;
+        long runStart = 0;
+        long previous = Long.MIN_VALUE;
         for (UserProgress item : progress) {
-            LocalDate logDate = item.getLogDate();
             // dayOffset = số ngày từ startDate đến ngày log
-            int dayOffset = (int) ChronoUnit.DAYS.between(startDate, logDate);
-            int targetForThatDay = getTargetForDayOffset(dayOffset, milestone);
-            totalTarget += targetForThatDay;
+            long dayOffset = ChronoUnit.DAYS.between(startDate, item.getLogDate());
+            if (previous == Long.MIN_VALUE) {
+                runStart = dayOffset;
+            } else if (dayOffset != previous + 1) {
+                totalTarget += targetCurve.sumTargets(runStart, previous);
+                runStart = dayOffset;
+            }
+            previous = dayOffset;
+        }
+        if (previous != Long.MIN_VALUE) {
+            totalTarget += targetCurve.sumTargets(runStart, previous);
         }
 
-            int totalSmokedSaved = totalTarget - totalSmoked;
+            int totalSmokedSaved = (int) (totalTarget - totalSmoked);
         if (totalSmokedSaved < 0) {
             totalSmokedSaved = 0; // Không thể có số thuốc lá đã hút vượt quá mục tiêu
         }
@@ -182,20 +260,6 @@ public class UserService {
 
     }
 
-    private int getTargetForDayOffset(int dayOffset, List<PlanMilestone> milestones) {
-        if (milestones.isEmpty()) {
-            return 0;
-        }
-        // lướt qua từng mốc, ngày ≤ mốc nào thì lấy luôn target của mốc đó
-        for (PlanMilestone m : milestones) {
-            if (dayOffset <= m.getDayOffset()) {
-                return m.getTargetCigarettes();
-            }
-        }
-        // nếu vượt mốc cuối cùng thì lấy target của mốc cuối
-        return milestones.get(milestones.size() - 1).getTargetCigarettes();
-    }
-
 
     public List<UserProgress> getUserProgressByUserId(Long userId) {
         QuitPlan currentPlan = quitPlanRepo.findByUserAndIsDoneFalse(
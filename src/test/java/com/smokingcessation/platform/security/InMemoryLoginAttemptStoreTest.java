@@ -0,0 +1,64 @@
+package com.smokingcessation.platform.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryLoginAttemptStoreTest {
+
+	private static final long WINDOW = 60_000;
+
+	private final InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore();
+
+	@Test
+	void failuresLeaveTheWindowOneByOne() {
+		store.recordFailure("login:a", 0, WINDOW);
+		store.recordFailure("login:a", 10_000, WINDOW);
+		assertThat(store.recordFailure("login:a", 20_000, WINDOW)).isEqualTo(3);
+
+		// Cửa sổ trượt: chỉ lần sai ở t=0 hết hạn, hai lần sau vẫn còn tính
+		assertThat(store.countFailures("login:a", 60_000, WINDOW)).isEqualTo(2);
+		assertThat(store.countFailures("login:a", 75_000, WINDOW)).isEqualTo(1);
+		assertThat(store.countFailures("login:a", 80_000, WINDOW)).isZero();
+	}
+
+	@Test
+	void keysAreCountedSeparately() {
+		store.recordFailure("login:a", 0, WINDOW);
+		store.recordFailure("ip:10.0.0.1", 0, WINDOW);
+		store.recordFailure("ip:10.0.0.1", 1_000, WINDOW);
+
+		assertThat(store.countFailures("login:a", 1_000, WINDOW)).isEqualTo(1);
+		assertThat(store.countFailures("ip:10.0.0.1", 1_000, WINDOW)).isEqualTo(2);
+		assertThat(store.countFailures("login:b", 1_000, WINDOW)).isZero();
+	}
+
+	@Test
+	void resetClearsTheKey() {
+		store.recordFailure("login:a", 0, WINDOW);
+		store.reset("login:a");
+
+		assertThat(store.countFailures("login:a", 0, WINDOW)).isZero();
+		assertThat(store.recordFailure("login:a", 1_000, WINDOW)).isEqualTo(1);
+	}
+
+	@Test
+	void purgeDropsOnlyExpiredFailures() {
+		store.recordFailure("login:old", 0, WINDOW);
+		store.recordFailure("login:recent", 50_000, WINDOW);
+
+		store.purgeExpired(70_000, WINDOW);
+
+		assertThat(store.countFailures("login:old", 70_000, WINDOW)).isZero();
+		assertThat(store.countFailures("login:recent", 70_000, WINDOW)).isEqualTo(1);
+	}
+
+	@Test
+	void countPerKeyIsCapped() {
+		int last = 0;
+		for (int i = 0; i < 1_000; i++) {
+			last = store.recordFailure("login:a", i, WINDOW);
+		}
+		assertThat(last).isEqualTo(256);
+	}
+}
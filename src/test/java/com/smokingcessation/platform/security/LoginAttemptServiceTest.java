@@ -0,0 +1,100 @@
+package com.smokingcessation.platform.security;
+
+import com.smokingcessation.platform.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginAttemptServiceTest {
+
+	private static final int MAX_FAILURES = 3;
+	private static final int MAX_FAILURES_PER_IP = 5;
+
+	private UserRepository userRepository;
+	private SecurityStampService securityStampService;
+	private LoginAttemptService service;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		securityStampService = mock(SecurityStampService.class);
+		service = new LoginAttemptService(new InMemoryLoginAttemptStore(), userRepository, securityStampService,
+				MAX_FAILURES, MAX_FAILURES_PER_IP, Duration.ofMinutes(15));
+	}
+
+	@Test
+	void loginIsBlockedAtTheThresholdWithoutTouchingTheDatabase() {
+		for (int i = 0; i < MAX_FAILURES - 1; i++) {
+			service.recordFailure("Alice@Example.com", "10.0.0.1");
+		}
+		assertThat(service.isBlocked("alice@example.com", "10.0.0.2")).isFalse();
+
+		service.recordFailure(" alice@example.com ", "10.0.0.1");
+
+		assertThat(service.isBlocked("ALICE@example.com", "10.0.0.2")).isTrue();
+		verify(userRepository, never()).lockAccountsUntil(anyList(), any());
+	}
+
+	@Test
+	void ipIsBlockedAcrossLogins() {
+		for (int i = 0; i < MAX_FAILURES_PER_IP; i++) {
+			service.recordFailure("user" + i, "10.0.0.1");
+		}
+
+		assertThat(service.isBlocked("someone-else", "10.0.0.1")).isTrue();
+		assertThat(service.isBlocked("someone-else", "10.0.0.2")).isFalse();
+	}
+
+	@Test
+	void successResetsTheLoginCounter() {
+		for (int i = 0; i < MAX_FAILURES - 1; i++) {
+			service.recordFailure("alice", null);
+		}
+		service.recordSuccess("alice");
+		service.recordFailure("alice", null);
+
+		assertThat(service.isBlocked("alice", null)).isFalse();
+	}
+
+	@Test
+	void flushLocksEachLoginOnceAndRotatesItsStamp() {
+		when(userRepository.findIdsByLogins(List.of("alice"))).thenReturn(List.of(7L));
+		// Vượt ngưỡng nhiều lần vẫn chỉ xếp hàng một lần
+		for (int i = 0; i < MAX_FAILURES + 2; i++) {
+			service.recordFailure("Alice", null);
+		}
+
+		service.flushLocks();
+		service.flushLocks();
+
+		verify(userRepository, times(1)).lockAccountsUntil(eq(List.of("alice")), any(LocalDateTime.class));
+		verify(securityStampService, times(1)).rotate(List.of(7L));
+	}
+
+	@Test
+	void flushChunksUnderTheParameterLimit() {
+		IntStream.range(0, 1_200).forEach(i -> {
+			for (int f = 0; f < MAX_FAILURES; f++) {
+				service.recordFailure("user" + i, null);
+			}
+		});
+
+		service.flushLocks();
+
+		verify(userRepository, times(3)).lockAccountsUntil(anyList(), any(LocalDateTime.class));
+	}
+}
@@ -0,0 +1,125 @@
+package com.smokingcessation.platform.service;
+
+import com.smokingcessation.platform.dto.PlanResponse;
+import com.smokingcessation.platform.entity.PlanMilestone;
+import com.smokingcessation.platform.entity.QuitPlan;
+import com.smokingcessation.platform.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({QuitPlanService.class, PlanTargetCurveCache.class, QuitPlanServiceStatementCountTest.MetricsConfig.class})
+@TestPropertySource(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class QuitPlanServiceStatementCountTest {
+
+	private static final int PLANS = 5;
+	private static final int MILESTONES_PER_PLAN = 4;
+
+	@TestConfiguration
+	static class MetricsConfig {
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private TestEntityManager em;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private QuitPlanService quitPlanService;
+
+	private Long userId;
+
+	@BeforeEach
+	void setUp() {
+		User user = new User();
+		user.setUsername("statement-count");
+		user.setEmail("statement-count@example.com");
+		user.setPassword("secret");
+		userId = em.persist(user).getId();
+
+		for (int p = 0; p < PLANS; p++) {
+			QuitPlan plan = new QuitPlan();
+			plan.setUser(user);
+			plan.setStartDate(LocalDate.of(2025, 1, 1).plusMonths(p));
+			plan.setQuitMonths(BigDecimal.valueOf(2));
+			for (int i = 0; i < MILESTONES_PER_PLAN; i++) {
+				PlanMilestone m = new PlanMilestone();
+				m.setQuitPlan(plan);
+				m.setStepIndex(i);
+				m.setDayOffset(i * 7);
+				m.setTargetCigarettes(20 - i * 5);
+				plan.getMilestones().add(m);
+			}
+			em.persist(plan);
+		}
+		em.flush();
+		em.clear();
+	}
+
+	private Statistics statistics() {
+		Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		stats.clear();
+		return stats;
+	}
+
+	@Test
+	void getByUserUsesAtMostTwoStatements() {
+		Statistics stats = statistics();
+
+		List<PlanResponse> plans = quitPlanService.getByUser(userId);
+
+		assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+		assertThat(plans).hasSize(PLANS);
+		assertThat(plans).allSatisfy(plan -> {
+			assertThat(plan.getMilestones()).hasSize(MILESTONES_PER_PLAN);
+			assertThat(plan.getMilestones().get(0).getStepIndex()).isZero();
+			assertThat(plan.getMilestones().get(MILESTONES_PER_PLAN - 1).getTargetCigarettes()).isEqualTo(5);
+		});
+	}
+
+	@Test
+	void pagedGetByUserUsesAtMostTwoStatements() {
+		Statistics stats = statistics();
+
+		List<PlanResponse> page = quitPlanService.getByUser(userId, 1, 2);
+
+		assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+		assertThat(page).hasSize(2);
+		assertThat(page).allSatisfy(plan -> assertThat(plan.getMilestones()).hasSize(MILESTONES_PER_PLAN));
+	}
+
+	@Test
+	void getByUserWithoutPlansSkipsMilestoneQuery() {
+		Statistics stats = statistics();
+
+		assertThat(quitPlanService.getByUser(-1L)).isEmpty();
+		assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+	}
+}